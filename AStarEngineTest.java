@@ -0,0 +1,59 @@
+package rumaps;
+
+import java.util.Random;
+
+import static rumaps.RoutingChecks.check;
+
+/**
+ * Behaviour tests for AStarEngine:
+ * - its routes cost the same as plain Dijkstra's, on a grid and on a geometric map, and are
+ *   chains of real edges whose traffic adds up to their cost;
+ * - it still agrees after traffic factors change, down to MIN_TRAFFIC_FACTOR, which the
+ *   heuristic is scaled by;
+ * - over all the queries it expands no more intersections than Dijkstra.
+ *
+ * Usage: java rumaps.AStarEngineTest
+ */
+public class AStarEngineTest {
+
+    private static final long SEED = 7;
+    private static final int INTERSECTIONS = 1500;
+    private static final int QUERIES = 300;
+
+    private AStarEngineTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (String layout : new String[] {"grid", "geometric"}) {
+            RUMaps map = RoutingChecks.generate(layout, INTERSECTIONS, SEED);
+            agreesWithDijkstra(layout, map);
+            Random random = new Random(SEED);
+            for (int u = 0; u < QUERIES; u++) {
+                RoutingChecks.updateRandomBlock(map, random);
+            }
+            agreesWithDijkstra(layout + " after traffic updates", map);
+        }
+        RoutingChecks.finish();
+    }
+
+    private static void agreesWithDijkstra(String name, RUMaps map) {
+        RouteGraph graph = map.getRouteGraph();
+        int[] vertices = RoutingChecks.occupied(graph);
+        DijkstraEngine dijkstra = new DijkstraEngine();
+        AStarEngine aStar = new AStarEngine();
+        long dijkstraExpanded = 0;
+        long aStarExpanded = 0;
+        Random random = new Random(SEED);
+        for (int q = 0; q < QUERIES; q++) {
+            int source = RoutingChecks.randomVertex(vertices, random);
+            int target = q == 0 ? source : RoutingChecks.randomVertex(vertices, random);
+            Route expected = dijkstra.route(graph, source, target);
+            Route actual = aStar.route(graph, source, target);
+            RoutingChecks.checkRoute(name + " A*", graph, source, target, expected, actual);
+            dijkstraExpanded += expected.getExpandedCount();
+            aStarExpanded += actual.getExpandedCount();
+        }
+        check(aStarExpanded <= dijkstraExpanded,
+                name + " A* expanded " + aStarExpanded + " intersections, Dijkstra " + dijkstraExpanded);
+    }
+}
@@ -0,0 +1,319 @@
+package rumaps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Finds up to k alternative routes between two intersections with Yen's algorithm, under a
+ * cost model that adds a turn penalty at every intersection where the route moves onto a block
+ * of a different street.
+ *
+ * Because the cost of a block depends on the block before it, the searches run over edges rather
+ * than intersections: a search state is "just arrived over edge e", and moving on to edge f costs
+ * f's traffic plus the penalty if the two blocks have different street names.
+ *
+ * Yen's algorithm takes the best route, then for every intersection along the latest accepted
+ * route runs a "spur" search that keeps the route up to that intersection (the root), bans the
+ * next edges already used by accepted routes with the same root, and bans going back through
+ * the root. The cheapest spur result not yet accepted becomes the next route.
+ *
+ * All spur searches for one query share their work:
+ * - a single backward search from the target gives, for every edge, the exact cost to the
+ *   target from the end of that edge. The spur searches use it as an A* heuristic. Bans only
+ *   make routes more expensive, so it never overestimates, and spur searches that are not
+ *   forced off the best route expand little more than the route itself.
+ * - the distance, predecessor and heap arrays are allocated once and reset lazily between
+ *   searches, like DijkstraEngine.
+ *
+ * The same goes across queries: the costs to the target are reset lazily through a query
+ * number, so an instance kept for a graph and turn penalty answers each query without
+ * allocating or clearing anything sized to the graph.
+ *
+ * An instance is not safe for use by several threads at once.
+ */
+public class AlternativeRoutes {
+
+    private final RouteGraph graph;
+    private final double turnPenalty;
+    private final int[] street; // street[e] is the index of e's street name
+
+    // cost from the end of each edge to the current target, from the backward search
+    private final double[] toTarget;
+    private final int[] toTargetAt; // query number that last reached each edge backward
+    private int query;
+
+    // spur search scratch, reset lazily through visitedAt
+    private final double[] cost;
+    private final int[] predEdge;
+    private final int[] visitedAt;
+    private final int[] bannedAt;  // search number that banned each intersection
+    private final int[] excludedAt; // search number that banned each first edge
+    private int search;
+    private final IndexMinPQ fringe;
+    private int expanded;
+
+    /**
+     * One route in edge form, as found or waiting to be accepted.
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+        final int[] edges;
+        final double cost;
+
+        Candidate(int[] edges, double cost) {
+            this.edges = edges;
+            this.cost = cost;
+        }
+
+        public int compareTo(Candidate other) {
+            return Double.compare(cost, other.cost);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Candidate && Arrays.equals(edges, ((Candidate) o).edges);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(edges);
+        }
+    }
+
+    /**
+     * @param graph the graph to search; its traffic must not change during a call to find
+     * @param turnPenalty the cost added each time a route changes street, at least 0
+     */
+    public AlternativeRoutes(RouteGraph graph, double turnPenalty) {
+        if (!(turnPenalty >= 0)) {
+            throw new IllegalArgumentException("turn penalty must not be negative: " + turnPenalty);
+        }
+        this.graph = graph;
+        this.turnPenalty = turnPenalty;
+
+        int edgeCount = graph.edgeCount();
+        street = new int[edgeCount];
+        HashMap<String, Integer> streets = new HashMap<>();
+        for (int e = 0; e < edgeCount; e++) {
+            Integer id = streets.get(graph.block(e).getStreetName());
+            if (id == null) {
+                id = streets.size();
+                streets.put(graph.block(e).getStreetName(), id);
+            }
+            street[e] = id;
+        }
+
+        toTarget = new double[edgeCount];
+        toTargetAt = new int[edgeCount];
+        cost = new double[edgeCount];
+        predEdge = new int[edgeCount];
+        visitedAt = new int[edgeCount];
+        excludedAt = new int[edgeCount];
+        bannedAt = new int[graph.vertexCount()];
+        fringe = new IndexMinPQ(edgeCount);
+    }
+
+    /**
+     * Finds up to k routes from source to target, cheapest first. No two routes take the same
+     * sequence of edges, and no route passes through its source again.
+     *
+     * @param source the id of the starting intersection
+     * @param target the id of the destination intersection
+     * @param k the most routes to return
+     * @return the routes, cheapest first; empty if target cannot be reached. Each route's cost
+     *         includes its turn penalties, and its expanded count is the number of edges all
+     *         searches expanded up to finding it.
+     */
+    public List<Route> find(int source, int target, int k) {
+        List<Route> routes = new ArrayList<>();
+        if (k <= 0) {
+            return routes;
+        }
+        expanded = 0;
+        if (source == target) {
+            routes.add(new Route(new int[] {source}, new int[0], 0.0, 0));
+            return routes;
+        }
+
+        computeCostsToTarget(target);
+        Candidate best = spur(source, target, new int[0], 0, 0.0, new ArrayList<Candidate>());
+        if (best == null) {
+            return routes;
+        }
+
+        List<Candidate> accepted = new ArrayList<>();
+        HashSet<Candidate> seen = new HashSet<>();
+        PriorityQueue<Candidate> waiting = new PriorityQueue<>();
+        accepted.add(best);
+        seen.add(best);
+        routes.add(toRoute(source, best));
+
+        while (accepted.size() < k) {
+            int[] last = accepted.get(accepted.size() - 1).edges;
+            double rootCost = 0.0;
+            for (int i = 0; i < last.length; i++) {
+                Candidate candidate = spur(source, target, last, i, rootCost, accepted);
+                if (candidate != null && seen.add(candidate)) {
+                    waiting.add(candidate);
+                }
+                rootCost += stepCost(i == 0 ? -1 : last[i - 1], last[i]);
+            }
+            if (waiting.isEmpty()) {
+                break;
+            }
+            Candidate next = waiting.poll();
+            accepted.add(next);
+            routes.add(toRoute(source, next));
+        }
+        return routes;
+    }
+
+    /**
+     * Runs a search that keeps the first rootLength edges of root and finds the cheapest way on
+     * from there, avoiding the root's intersections and the next edge of every accepted route
+     * that shares the root.
+     *
+     * @return the whole route, root included, or null if there is none
+     */
+    private Candidate spur(int source, int target, int[] root, int rootLength, double rootCost,
+            List<Candidate> accepted) {
+        search++;
+        int lastRootEdge = rootLength == 0 ? -1 : root[rootLength - 1];
+        int spurVertex = rootLength == 0 ? source : graph.target(lastRootEdge);
+
+        //the spur may not go back through any intersection of the root, the spur vertex included
+        bannedAt[source] = search;
+        for (int i = 0; i < rootLength; i++) {
+            bannedAt[graph.target(root[i])] = search;
+        }
+        for (Candidate route : accepted) {
+            if (route.edges.length > rootLength && sharesRoot(route.edges, root, rootLength)) {
+                excludedAt[route.edges[rootLength]] = search;
+            }
+        }
+
+        for (int f = graph.firstEdge(spurVertex); f < graph.endEdge(spurVertex); f++) {
+            if (excludedAt[f] == search || bannedAt[graph.target(f)] == search) {
+                continue;
+            }
+            relax(lastRootEdge, f, rootCost, -1);
+        }
+
+        int goal = -1;
+        while (!fringe.isEmpty()) {
+            int e = fringe.delMin();
+            expanded++;
+            if (graph.target(e) == target) {
+                goal = e;
+                break;
+            }
+            int v = graph.target(e);
+            for (int f = graph.firstEdge(v); f < graph.endEdge(v); f++) {
+                if (bannedAt[graph.target(f)] != search) {
+                    relax(e, f, cost[e], e);
+                }
+            }
+        }
+        fringe.clear();
+        if (goal == -1) {
+            return null;
+        }
+
+        int spurLength = 0;
+        for (int e = goal; e != -1; e = predEdge[e]) {
+            spurLength++;
+        }
+        int[] edges = Arrays.copyOf(root, rootLength + spurLength);
+        for (int e = goal, i = edges.length - 1; e != -1; e = predEdge[e], i--) {
+            edges[i] = e;
+        }
+        return new Candidate(edges, cost[goal]);
+    }
+
+    /**
+     * @return true if this instance searches graph with the given turn penalty, so that it can
+     *         be reused for another query
+     */
+    boolean isFor(RouteGraph graph, double turnPenalty) {
+        return this.graph == graph && Double.compare(this.turnPenalty, turnPenalty) == 0;
+    }
+
+    //reaches edge f after edge e (-1 at the source), with everything up to e costing costSoFar;
+    //pred is e, or -1 when e belongs to the root rather than to the spur
+    private void relax(int e, int f, double costSoFar, int pred) {
+        if (costToTarget(f) == Double.POSITIVE_INFINITY) {
+            return;
+        }
+        if (visitedAt[f] != search) {
+            visitedAt[f] = search;
+            cost[f] = Double.POSITIVE_INFINITY;
+        }
+        double newCost = costSoFar + stepCost(e, f);
+        if (newCost < cost[f]) {
+            cost[f] = newCost;
+            predEdge[f] = pred;
+            fringe.insertOrDecrease(f, newCost + costToTarget(f));
+        }
+    }
+
+    /**
+     * Fills toTarget with the cheapest cost from the end of every edge to the target, by a
+     * Dijkstra over edges that runs backward from the edges entering the target.
+     */
+    private void computeCostsToTarget(int target) {
+        query++;
+        for (int i = graph.firstInEdge(target); i < graph.endInEdge(target); i++) {
+            int e = graph.inEdge(i);
+            toTargetAt[e] = query;
+            toTarget[e] = 0.0;
+            fringe.insert(e, 0.0);
+        }
+        while (!fringe.isEmpty()) {
+            int f = fringe.delMin();
+            int v = graph.source(f);
+            for (int i = graph.firstInEdge(v); i < graph.endInEdge(v); i++) {
+                int e = graph.inEdge(i);
+                double newCost = toTarget[f] + stepCost(e, f);
+                if (newCost < costToTarget(e)) {
+                    toTargetAt[e] = query;
+                    toTarget[e] = newCost;
+                    fringe.insertOrDecrease(e, newCost);
+                }
+            }
+        }
+    }
+
+    private double costToTarget(int e) {
+        return toTargetAt[e] == query ? toTarget[e] : Double.POSITIVE_INFINITY;
+    }
+
+    //cost of moving on to edge f after edge e (-1 if f is the first edge of the route)
+    private double stepCost(int e, int f) {
+        double step = graph.traffic(f);
+        if (e != -1 && street[e] != street[f]) {
+            step += turnPenalty;
+        }
+        return step;
+    }
+
+    private static boolean sharesRoot(int[] edges, int[] root, int rootLength) {
+        for (int i = 0; i < rootLength; i++) {
+            if (edges[i] != root[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Route toRoute(int source, Candidate candidate) {
+        int[] vertices = new int[candidate.edges.length + 1];
+        vertices[0] = source;
+        for (int i = 0; i < candidate.edges.length; i++) {
+            vertices[i + 1] = graph.target(candidate.edges[i]);
+        }
+        return new Route(vertices, candidate.edges, candidate.cost, expanded);
+    }
+}
@@ -0,0 +1,202 @@
+package rumaps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static rumaps.RoutingChecks.check;
+
+/**
+ * Behaviour tests for AlternativeRoutes, through RUMaps.alternativeRoutes:
+ * - every route is a chain of real edges from start to end that does not come back to an
+ *   intersection, no two routes take the same edges, and the routes come cheapest first;
+ * - each route costs its traffic plus the turn penalty for every change of street;
+ * - the first route is the cheapest there is: plain Dijkstra's cost without a penalty, and an
+ *   edge-by-edge Dijkstra's cost with one;
+ * - on a small grid, where every path can be listed, the k routes without a penalty cost the
+ *   same as the k cheapest paths there are;
+ * - asking for no routes gives none, and a negative turn penalty is refused.
+ *
+ * Usage: java rumaps.AlternativeRoutesTest
+ */
+public class AlternativeRoutesTest {
+
+    private static final long SEED = 7;
+    private static final int INTERSECTIONS = 1500;
+    private static final int QUERIES = 40;
+    private static final int K = 8;
+    private static final double[] PENALTIES = {0.0, 25.0, 200.0};
+
+    private AlternativeRoutesTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (String layout : new String[] {"grid", "geometric"}) {
+            RUMaps map = RoutingChecks.generate(layout, INTERSECTIONS, SEED);
+            for (double penalty : PENALTIES) {
+                checkRoutes(layout + " with penalty " + penalty, map, penalty);
+            }
+        }
+        cheapestOfAllPaths("small grid", RoutingChecks.generate("grid", 16, SEED));
+        edgeCases(RoutingChecks.generate("grid", 16, SEED));
+        RoutingChecks.finish();
+    }
+
+    private static void checkRoutes(String name, RUMaps map, double penalty) {
+        RouteGraph graph = map.getRouteGraph();
+        int[] vertices = RoutingChecks.occupied(graph);
+        DijkstraEngine dijkstra = new DijkstraEngine();
+        Random random = new Random(SEED);
+        for (int q = 0; q < QUERIES; q++) {
+            int source = RoutingChecks.randomVertex(vertices, random);
+            int target = RoutingChecks.randomVertex(vertices, random);
+            String query = name + " from " + source + " to " + target;
+            List<Route> routes = map.alternativeRoutes(graph.intersection(source), graph.intersection(target), K, penalty);
+
+            double best = penalty == 0 ? dijkstra.route(graph, source, target).getCost()
+                    : cheapestWithPenalty(graph, source, target, penalty);
+            if (best == Double.POSITIVE_INFINITY || source == target) {
+                check(routes.size() == (source == target ? 1 : 0), query + " found " + routes.size() + " routes");
+                continue;
+            }
+            if (!check(!routes.isEmpty() && routes.size() <= K, query + " found " + routes.size() + " routes")) {
+                continue;
+            }
+            check(RoutingChecks.same(routes.get(0).getCost(), best),
+                    query + " first route costs " + routes.get(0).getCost() + ", the cheapest costs " + best);
+            checkDistinctAndOrdered(query, graph, source, target, routes, penalty);
+        }
+    }
+
+    private static void checkDistinctAndOrdered(String query, RouteGraph graph, int source, int target,
+            List<Route> routes, double penalty) {
+        HashSet<String> seen = new HashSet<>();
+        for (int i = 0; i < routes.size(); i++) {
+            Route route = routes.get(i);
+            int[] vertices = route.getVertices();
+            int[] edges = route.getEdges();
+            check(seen.add(Arrays.toString(edges)), query + " route " + i + " repeats an earlier one");
+            check(i == 0 || routes.get(i - 1).getCost() <= route.getCost() + RoutingChecks.EPSILON,
+                    query + " route " + i + " is cheaper than the one before it");
+            if (!check(vertices.length == edges.length + 1 && vertices[0] == source
+                    && vertices[vertices.length - 1] == target, query + " route " + i + " does not run from source to target")) {
+                continue;
+            }
+            HashSet<Integer> visited = new HashSet<>();
+            double cost = 0.0;
+            for (int j = 0; j < edges.length; j++) {
+                check(graph.source(edges[j]) == vertices[j] && graph.target(edges[j]) == vertices[j + 1],
+                        query + " route " + i + " has edge " + edges[j] + " out of place");
+                cost += graph.traffic(edges[j]);
+                if (j > 0 && !graph.block(edges[j - 1]).getStreetName().equals(graph.block(edges[j]).getStreetName())) {
+                    cost += penalty;
+                }
+            }
+            for (int v : vertices) {
+                check(visited.add(v), query + " route " + i + " comes back to " + v);
+            }
+            check(RoutingChecks.same(cost, route.getCost()),
+                    query + " route " + i + " costs " + route.getCost() + ", its traffic and turns cost " + cost);
+        }
+    }
+
+    /**
+     * Dijkstra over edges, where moving on to an edge of another street costs the penalty on
+     * top of its traffic, written out plainly with arrays and a scan for the minimum.
+     */
+    private static double cheapestWithPenalty(RouteGraph graph, int source, int target, double penalty) {
+        if (source == target) {
+            return 0.0;
+        }
+        double[] cost = new double[graph.edgeCount()];
+        boolean[] done = new boolean[graph.edgeCount()];
+        Arrays.fill(cost, Double.POSITIVE_INFINITY);
+        IndexMinPQ fringe = new IndexMinPQ(graph.edgeCount());
+        for (int e = graph.firstEdge(source); e < graph.endEdge(source); e++) {
+            cost[e] = graph.traffic(e);
+            fringe.insertOrDecrease(e, cost[e]);
+        }
+        while (!fringe.isEmpty()) {
+            int e = fringe.delMin();
+            done[e] = true;
+            int v = graph.target(e);
+            if (v == target) {
+                return cost[e];
+            }
+            for (int f = graph.firstEdge(v); f < graph.endEdge(v); f++) {
+                double step = graph.traffic(f);
+                if (!graph.block(e).getStreetName().equals(graph.block(f).getStreetName())) {
+                    step += penalty;
+                }
+                if (!done[f] && cost[e] + step < cost[f]) {
+                    cost[f] = cost[e] + step;
+                    fringe.insertOrDecrease(f, cost[f]);
+                }
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private static void cheapestOfAllPaths(String name, RUMaps map) {
+        RouteGraph graph = map.getRouteGraph();
+        int[] vertices = RoutingChecks.occupied(graph);
+        for (int source : vertices) {
+            for (int target : vertices) {
+                if (source == target) {
+                    continue;
+                }
+                List<Double> costs = new ArrayList<>();
+                boolean[] onPath = new boolean[graph.vertexCount()];
+                onPath[source] = true;
+                allPaths(graph, source, target, 0.0, onPath, costs);
+                Collections.sort(costs);
+
+                int k = 2 * K;
+                List<Route> routes = map.alternativeRoutes(graph.intersection(source), graph.intersection(target), k, 0.0);
+                String query = name + " from " + source + " to " + target;
+                if (!check(routes.size() == Math.min(k, costs.size()),
+                        query + " found " + routes.size() + " routes, there are " + costs.size() + " paths")) {
+                    continue;
+                }
+                for (int i = 0; i < routes.size(); i++) {
+                    check(RoutingChecks.same(routes.get(i).getCost(), costs.get(i)), query + " route " + i + " costs "
+                            + routes.get(i).getCost() + ", the path of that rank costs " + costs.get(i));
+                }
+                checkDistinctAndOrdered(query, graph, source, target, routes, 0.0);
+            }
+        }
+    }
+
+    private static void edgeCases(RUMaps map) {
+        RouteGraph graph = map.getRouteGraph();
+        int[] vertices = RoutingChecks.occupied(graph);
+        Intersection start = graph.intersection(vertices[0]);
+        Intersection end = graph.intersection(vertices[vertices.length - 1]);
+        check(map.alternativeRoutes(start, end, 0, 0.0).isEmpty(), "asking for 0 routes found some");
+        try {
+            new AlternativeRoutes(graph, -1.0);
+            check(false, "a negative turn penalty was accepted");
+        } catch (IllegalArgumentException e) {
+            check(true, "");
+        }
+    }
+
+    //adds the cost of every path from v to target that avoids the intersections on the path so far
+    private static void allPaths(RouteGraph graph, int v, int target, double cost, boolean[] onPath, List<Double> costs) {
+        if (v == target) {
+            costs.add(cost);
+            return;
+        }
+        for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+            int w = graph.target(e);
+            if (!onPath[w]) {
+                onPath[w] = true;
+                allPaths(graph, w, target, cost + graph.traffic(e), onPath, costs);
+                onPath[w] = false;
+            }
+        }
+    }
+}
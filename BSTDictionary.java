@@ -1,12 +1,102 @@
 package dictionary;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Stream;
 
-public class BSTDictionary {
+public class BSTDictionary implements WordDictionary {
 
     // The root node of this BST
     private WordNode root;
 
+    // true to keep the tree AVL balanced as words are added
+    private final boolean balanced;
+
+    // nodes on the way down from the root during an insert or remove, so they can be fixed on the way back up
+    private WordNode[] path = new WordNode[32];
+
+    // lookups done by getDefinition, and the word comparisons they made
+    private long lookups;
+    private long lookupComparisons;
+
+    /**
+     * Creates an empty dictionary that stores words in a plain BST, in the order they are added.
+     */
+    public BSTDictionary() {
+        this(false);
+    }
+
+    /**
+     * Creates an empty dictionary.
+     * 
+     * @param balanced true to keep the tree AVL balanced, so that adding and finding a word takes
+     *                 O(log n) even when words are added in sorted order; false for a plain BST
+     */
+    public BSTDictionary(boolean balanced) {
+        this.balanced = balanced;
+    }
+
+    /**
+     * Creates a dictionary holding the given words, building a perfectly balanced tree in one
+     * pass instead of adding the words one at a time.
+     * 
+     * The words may come in any order, but sorted input is detected and loaded in O(n); other
+     * input is sorted first. As with addWord, when a word appears more than once only its first
+     * definition is kept.
+     * 
+     * @param entries  the words to add, each with its definition; the nodes are copied, and
+     *                 their children are ignored
+     * @param balanced whether later addWord calls keep the tree AVL balanced
+     */
+    public BSTDictionary(List<? extends WordNode> entries, boolean balanced) {
+        this(balanced);
+        WordNode[] sorted = entries.toArray(new WordNode[0]);
+        boolean inOrder = true;
+        for (int i = 1; i < sorted.length && inOrder; i++) {
+            inOrder = sorted[i - 1].getWord().compareTo(sorted[i].getWord()) <= 0;
+        }
+        if (!inOrder) {
+            //stable, so the first occurrence of a word stays first
+            Arrays.sort(sorted, (a, b) -> a.getWord().compareTo(b.getWord()));
+        }
+
+        //drop repeated words, keeping the first
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (count == 0 || !sorted[i].getWord().equals(sorted[count - 1].getWord())) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        root = build(sorted, 0, count - 1);
+    }
+
+    /**
+     * Builds a tree from sorted[lo..hi] by making the middle word the root and building each
+     * half the same way.
+     */
+    private static WordNode build(WordNode[] sorted, int lo, int hi) {
+        if (lo > hi) {
+            return null;
+        }
+        int mid = lo + (hi - lo) / 2;
+        WordNode node = new DictionaryNode(sorted[mid].getWord(), sorted[mid].getDefinition());
+        node.setLeft(build(sorted, lo, mid - 1));
+        node.setRight(build(sorted, mid + 1, hi));
+        update(node);
+        return node;
+    }
+
+    /**
+     * @return true if this dictionary keeps its tree AVL balanced
+     */
+    public boolean isBalanced() {
+        return balanced;
+    }
+
     /**
      * This method is provided for you, do not edit it.
      * 
@@ -24,21 +114,13 @@ public class BSTDictionary {
     }
 
     /**
-     * This is a recursive helper method for post-order traversal.
+     * This is a helper method for pre-order traversal.
      * 
-     * You should:
-     * 1) return if the curr WordNode is null
-     * 2) Add curr to the ArrayList
-     * 3) Recursively call this method on curr's left child
-     * 4) Recursively call this method on curr's right child
+     * It drains a pre-order TreeTraversal iterator into the list instead of recursing,
+     * so a degenerate tree cannot overflow the call stack.
      */
     private void preOrderHelper(WordNode curr, ArrayList<WordNode> list) {
-        // WRITE YOUR CODE HERE
-        if(curr == null) return;
-        list.add(curr);
-        preOrderHelper(curr.getLeft(), list);
-        preOrderHelper(curr.getRight(), list);
-
+        TreeTraversal.iterator(curr, TreeTraversal.Order.PRE_ORDER).forEachRemaining(list::add);
     }
 
     /**
@@ -59,21 +141,12 @@ public class BSTDictionary {
     }
 
     /**
-     * This is a recursive helper method for post-order traversal.
+     * This is a helper method for post-order traversal.
      * 
-     * You should:
-     * 1) return if the curr WordNode is null
-     * 2) Recursively call this method on curr's left child
-     * 3) Recursively call this method on curr's right child
-     * 4) Add curr to the ArrayList
+     * It drains a post-order TreeTraversal iterator into the list instead of recursing.
      */
     private void postOrderHelper(WordNode curr, ArrayList<WordNode> list) {
-        // WRITE YOUR CODE HERE
-        if(curr == null) return;
-        postOrderHelper(curr.getLeft(), list);
-        postOrderHelper(curr.getRight(), list);
-        list.add(curr);
-
+        TreeTraversal.iterator(curr, TreeTraversal.Order.POST_ORDER).forEachRemaining(list::add);
     }
 
     /**
@@ -93,22 +166,12 @@ public class BSTDictionary {
     }
 
     /**
-     * This is a recursive helper method for post-order traversal.
+     * This is a helper method for in-order traversal.
      * 
-     * You should:
-     * 1) return if the curr WordNode is null
-     * 2) Recursively call this method on curr's left child
-     * 3) Add curr to the ArrayList
-     * 4) Recursively call this method on curr's right child
+     * It drains an in-order TreeTraversal iterator into the list instead of recursing.
      */
     private void inOrderHelper(WordNode curr, ArrayList<WordNode> list) {
-        // WRITE YOUR CODE HERE
-        if (curr == null) return; // Base case: if the node is null, return.
-    
-        inOrderHelper(curr.getLeft(), list);
-        list.add(curr); 
-        inOrderHelper(curr.getRight(), list);
-
+        TreeTraversal.iterator(curr, TreeTraversal.Order.IN_ORDER).forEachRemaining(list::add);
     }
 
     /**
@@ -151,38 +214,528 @@ public class BSTDictionary {
     }
 
     /**
-     * This method is provided for you, do not edit it.
-     * 
      * This inserts a new WordNode in this BST, containing the given
-     * word and the given definition
+     * word and the given definition. If the word is already in the tree, nothing changes.
+     * 
+     * In balanced mode the tree is rotated back into AVL shape on the way up from the new node.
      * 
      * @param word       The word to add
      * @param definition The definition of the word
      */
     public void addWord(String word, String definition) {
-        // DO NOT EDIT
         if (root == null) {
-            root = new WordNode(word, definition);
+            root = new DictionaryNode(word, definition);
             return;
         }
+        int depth = 0;
         WordNode ptr = root;
-        while (ptr != null) {
-            if (word.compareTo(ptr.getWord()) < 0) {
-                if (ptr.getLeft() == null) {
-                    ptr.setLeft(new WordNode(word, definition));
-                    return;
+        while (true) {
+            depth = push(ptr, depth);
+            int cmp = word.compareTo(ptr.getWord()); //compare once per level
+            if (cmp == 0) {
+                Arrays.fill(path, 0, depth, null);
+                return;
+            }
+            WordNode next = cmp < 0 ? ptr.getLeft() : ptr.getRight();
+            if (next == null) {
+                if (cmp < 0) {
+                    ptr.setLeft(new DictionaryNode(word, definition));
+                } else {
+                    ptr.setRight(new DictionaryNode(word, definition));
                 }
+                break;
+            }
+            ptr = next;
+        }
+
+        //fix heights and sizes, and balance in balanced mode, from the new node's parent up to the root
+        for (int i = depth - 1; i >= 0; i--) {
+            WordNode node = path[i];
+            path[i] = null;
+            update(node);
+            if (balanced) {
+                replaceChild(i == 0 ? null : path[i - 1], node, rebalance(node));
+            }
+        }
+    }
+
+    /**
+     * Looks up a word in O(height) and counts the comparisons for comparisonsPerLookup().
+     * 
+     * @param word the word to look up
+     * @return the definition of word, or null if it is not in the dictionary
+     */
+    public String getDefinition(String word) {
+        lookups++;
+        WordNode ptr = root;
+        while (ptr != null) {
+            lookupComparisons++;
+            int cmp = word.compareTo(ptr.getWord());
+            if (cmp == 0) {
+                return ptr.getDefinition();
+            }
+            ptr = cmp < 0 ? ptr.getLeft() : ptr.getRight();
+        }
+        return null;
+    }
+
+    /**
+     * Replaces the definition of a word already in the dictionary.
+     * 
+     * A WordNode's definition is fixed when it is made, so the word's node is replaced by a new
+     * one with the new definition, which takes over its children, height and size. Nodes handed
+     * out earlier, for example by floor or inOrder, keep the old definition.
+     * 
+     * @param word       the word to change
+     * @param definition its new definition
+     * @return true if the word was found and changed, false if it is not in the dictionary
+     */
+    public boolean updateDefinition(String word, String definition) {
+        WordNode parent = null;
+        WordNode ptr = root;
+        while (ptr != null) {
+            int cmp = word.compareTo(ptr.getWord());
+            if (cmp == 0) {
+                DictionaryNode replacement = new DictionaryNode(ptr.getWord(), definition);
+                replacement.setLeft(ptr.getLeft());
+                replacement.setRight(ptr.getRight());
+                replacement.setHeight(height(ptr));
+                replacement.setSize(size(ptr));
+                replaceChild(parent, ptr, replacement);
+                ptr.setLeft(null);
+                ptr.setRight(null);
+                return true;
+            }
+            parent = ptr;
+            ptr = cmp < 0 ? ptr.getLeft() : ptr.getRight();
+        }
+        return false;
+    }
+
+    /**
+     * Removes a word in O(height). A node with two children is replaced by its successor, the
+     * least word in its right subtree (Hibbard deletion). Heights and sizes are then fixed from
+     * the lowest changed node up to the root, and in balanced mode the tree is rotated back into
+     * AVL shape on the way.
+     * 
+     * @param word the word to remove
+     * @return true if the word was removed, false if it was not in the dictionary
+     */
+    public boolean removeWord(String word) {
+        int depth = 0;
+        WordNode ptr = root;
+        while (ptr != null) {
+            int cmp = word.compareTo(ptr.getWord());
+            if (cmp == 0) {
+                break;
+            }
+            depth = push(ptr, depth);
+            ptr = cmp < 0 ? ptr.getLeft() : ptr.getRight();
+        }
+        if (ptr == null) {
+            Arrays.fill(path, 0, depth, null);
+            return false;
+        }
+
+        int top = depth; //where the replacement goes on the path
+        WordNode replacement;
+        if (ptr.getLeft() == null) {
+            replacement = ptr.getRight();
+        } else if (ptr.getRight() == null) {
+            replacement = ptr.getLeft();
+        } else {
+            depth = push(null, depth); //the successor's slot, filled in below
+            WordNode successor = ptr.getRight();
+            while (successor.getLeft() != null) {
+                depth = push(successor, depth);
+                successor = successor.getLeft();
+            }
+            if (successor != ptr.getRight()) {
+                path[depth - 1].setLeft(successor.getRight());
+                successor.setRight(ptr.getRight());
+            }
+            successor.setLeft(ptr.getLeft());
+            path[top] = successor;
+            replacement = successor;
+        }
+        replaceChild(top == 0 ? null : path[top - 1], ptr, replacement);
+        ptr.setLeft(null);
+        ptr.setRight(null);
+
+        for (int i = depth - 1; i >= 0; i--) {
+            WordNode node = path[i];
+            path[i] = null;
+            update(node);
+            if (balanced) {
+                replaceChild(i == 0 ? null : path[i - 1], node, rebalance(node));
+            }
+        }
+        return true;
+    }
+
+    //stores node at path[depth], growing path if needed, and returns the new depth
+    private int push(WordNode node, int depth) {
+        if (depth == path.length) {
+            path = Arrays.copyOf(path, depth * 2);
+        }
+        path[depth] = node;
+        return depth + 1;
+    }
+
+    //points parent (or the root, if parent is null) at replacement instead of node
+    private void replaceChild(WordNode parent, WordNode node, WordNode replacement) {
+        if (node == replacement) {
+            return;
+        }
+        if (parent == null) {
+            root = replacement;
+        } else if (parent.getLeft() == node) {
+            parent.setLeft(replacement);
+        } else {
+            parent.setRight(replacement);
+        }
+    }
+
+    /**
+     * Restores the AVL property at node, whose subtrees are balanced and differ in height by at
+     * most 2.
+     * 
+     * @return the root of the subtree after any rotations
+     */
+    private WordNode rebalance(WordNode node) {
+        int balance = height(node.getLeft()) - height(node.getRight());
+        if (balance > 1) {
+            WordNode left = node.getLeft();
+            if (height(left.getLeft()) < height(left.getRight())) {
+                node.setLeft(rotateLeft(left)); //left-right case
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            WordNode right = node.getRight();
+            if (height(right.getRight()) < height(right.getLeft())) {
+                node.setRight(rotateRight(right)); //right-left case
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private WordNode rotateRight(WordNode node) {
+        WordNode left = node.getLeft();
+        node.setLeft(left.getRight());
+        left.setRight(node);
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private WordNode rotateLeft(WordNode node) {
+        WordNode right = node.getRight();
+        node.setRight(right.getLeft());
+        right.setLeft(node);
+        update(node);
+        update(right);
+        return right;
+    }
+
+    //recomputes the height and size stored in node from its children
+    static void update(WordNode node) {
+        DictionaryNode n = (DictionaryNode) node;
+        n.setHeight(1 + Math.max(height(node.getLeft()), height(node.getRight())));
+        n.setSize(1 + size(node.getLeft()) + size(node.getRight()));
+    }
+
+    static int height(WordNode node) {
+        return node == null ? 0 : ((DictionaryNode) node).getHeight();
+    }
+
+    static int size(WordNode node) {
+        return node == null ? 0 : ((DictionaryNode) node).getSize();
+    }
+
+    /**
+     * @return the number of words in this dictionary
+     */
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * @return the number of nodes on the longest path from the root down, 0 for an empty tree
+     */
+    public int height() {
+        return height(root);
+    }
+
+    /**
+     * Takes O(n), since it visits every node.
+     * 
+     * @return the average number of edges from the root to a node, 0 for an empty tree; a
+     *         lookup of a word in the dictionary makes one comparison more than its depth
+     */
+    public double averageDepth() {
+        if (root == null) {
+            return 0.0;
+        }
+        //each node adds 1 to the depth of every node below it
+        long totalDepth = 0;
+        Iterator<WordNode> nodes = iterator(TreeTraversal.Order.PRE_ORDER);
+        while (nodes.hasNext()) {
+            totalDepth += size(nodes.next()) - 1;
+        }
+        return (double) totalDepth / size(root);
+    }
+
+    /**
+     * @return the number of getDefinition calls since the dictionary was made or the statistics
+     *         were reset
+     */
+    public long lookups() {
+        return lookups;
+    }
+
+    /**
+     * @return the average number of word comparisons made by getDefinition, 0 if there were no
+     *         lookups. Growing well past log2(size()) means the tree is degenerating.
+     */
+    public double comparisonsPerLookup() {
+        return lookups == 0 ? 0.0 : (double) lookupComparisons / lookups;
+    }
+
+    /**
+     * Sets the lookup and comparison counts back to 0.
+     */
+    public void resetStatistics() {
+        lookups = 0;
+        lookupComparisons = 0;
+    }
+
+    /**
+     * @param word the word to look for
+     * @return the node with the greatest word less than or equal to word, or null if there is none
+     */
+    public WordNode floor(String word) {
+        return floor(root, word);
+    }
+
+    //the read-only queries below take the root so ConcurrentBSTDictionary can run them on a snapshot
+    static WordNode floor(WordNode root, String word) {
+        WordNode best = null;
+        WordNode ptr = root;
+        while (ptr != null) {
+            int cmp = word.compareTo(ptr.getWord());
+            if (cmp == 0) {
+                return ptr;
+            }
+            if (cmp < 0) {
                 ptr = ptr.getLeft();
-            } else if (word.compareTo(ptr.getWord()) > 0) {
-                if (ptr.getRight() == null) {
-                    ptr.setRight(new WordNode(word, definition));
-                    return;
-                }
+            } else {
+                best = ptr;
+                ptr = ptr.getRight();
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @param word the word to look for
+     * @return the node with the least word greater than or equal to word, or null if there is none
+     */
+    public WordNode ceiling(String word) {
+        return ceiling(root, word);
+    }
+
+    static WordNode ceiling(WordNode root, String word) {
+        WordNode best = null;
+        WordNode ptr = root;
+        while (ptr != null) {
+            int cmp = word.compareTo(ptr.getWord());
+            if (cmp == 0) {
+                return ptr;
+            }
+            if (cmp > 0) {
                 ptr = ptr.getRight();
             } else {
-                return;
+                best = ptr;
+                ptr = ptr.getLeft();
             }
         }
+        return best;
+    }
+
+    /**
+     * @param word any word, in the dictionary or not
+     * @return the number of words in the dictionary that come before word
+     */
+    public int rank(String word) {
+        return rank(root, word);
+    }
+
+    static int rank(WordNode root, String word) {
+        int rank = 0;
+        WordNode ptr = root;
+        while (ptr != null) {
+            int cmp = word.compareTo(ptr.getWord());
+            if (cmp < 0) {
+                ptr = ptr.getLeft();
+            } else if (cmp > 0) {
+                rank += size(ptr.getLeft()) + 1;
+                ptr = ptr.getRight();
+            } else {
+                return rank + size(ptr.getLeft());
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * @param rank a position in alphabetical order, starting at 0
+     * @return the node holding the word with that many words before it
+     * @throws IllegalArgumentException if rank is negative or not less than size()
+     */
+    public WordNode select(int rank) {
+        return select(root, rank);
+    }
+
+    static WordNode select(WordNode root, int rank) {
+        if (rank < 0 || rank >= size(root)) {
+            throw new IllegalArgumentException("rank " + rank + " is outside 0.." + (size(root) - 1));
+        }
+        WordNode ptr = root;
+        while (true) {
+            int leftSize = size(ptr.getLeft());
+            if (rank < leftSize) {
+                ptr = ptr.getLeft();
+            } else if (rank > leftSize) {
+                rank -= leftSize + 1;
+                ptr = ptr.getRight();
+            } else {
+                return ptr;
+            }
+        }
+    }
+
+    /**
+     * Finds the words from lo to hi, both included, in alphabetical order. Only the subtrees
+     * that can hold such words are visited, so this takes O(height + number of words found).
+     * 
+     * @param lo the first word to include
+     * @param hi the last word to include
+     * @return the nodes of the words in the range, in in-order
+     */
+    public ArrayList<WordNode> range(String lo, String hi) {
+        return range(root, lo, hi);
+    }
+
+    static ArrayList<WordNode> range(WordNode root, String lo, String hi) {
+        ArrayList<WordNode> found = new ArrayList<>();
+        ArrayDeque<WordNode> stack = seek(root, lo);
+        while (!stack.isEmpty()) {
+            WordNode node = stack.pop();
+            if (node.getWord().compareTo(hi) > 0) {
+                break;
+            }
+            found.add(node);
+            for (WordNode ptr = node.getRight(); ptr != null; ptr = ptr.getLeft()) {
+                stack.push(ptr);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Finds the words that start with prefix, in O(height + number of words found).
+     * 
+     * @param prefix the start of the words to find
+     * @return the nodes of the words starting with prefix, in in-order
+     */
+    public ArrayList<WordNode> prefix(String prefix) {
+        return prefix(root, prefix);
+    }
+
+    static ArrayList<WordNode> prefix(WordNode root, String prefix) {
+        ArrayList<WordNode> found = new ArrayList<>();
+        ArrayDeque<WordNode> stack = seek(root, prefix);
+        //the words starting with prefix are exactly the ones that follow it until the first that does not
+        while (!stack.isEmpty()) {
+            WordNode node = stack.pop();
+            if (!node.getWord().startsWith(prefix)) {
+                break;
+            }
+            found.add(node);
+            for (WordNode ptr = node.getRight(); ptr != null; ptr = ptr.getLeft()) {
+                stack.push(ptr);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Sets up an in-order walk that starts at the first word not less than lo: the stack holds
+     * the nodes on the search path for lo that are at least lo, smallest on top.
+     */
+    private static ArrayDeque<WordNode> seek(WordNode root, String lo) {
+        ArrayDeque<WordNode> stack = new ArrayDeque<>();
+        WordNode ptr = root;
+        while (ptr != null) {
+            int cmp = lo.compareTo(ptr.getWord());
+            if (cmp <= 0) {
+                stack.push(ptr);
+                if (cmp == 0) {
+                    break;
+                }
+                ptr = ptr.getLeft();
+            } else {
+                ptr = ptr.getRight();
+            }
+        }
+        return stack;
+    }
+
+    /**
+     * Copies this dictionary into a FrozenDictionary, whose flat array layout makes lookups
+     * faster and takes less memory. Later changes to this dictionary do not affect the copy.
+     * 
+     * @return an immutable copy of this dictionary
+     */
+    public FrozenDictionary freeze() {
+        return new FrozenDictionary(root);
+    }
+
+    /**
+     * @return an iterator over the nodes in in-order, that is, in alphabetical order of their words
+     */
+    @Override
+    public Iterator<WordNode> iterator() {
+        return iterator(TreeTraversal.Order.IN_ORDER);
+    }
+
+    /**
+     * Visits the nodes lazily, in the same order as the list traversal methods but without
+     * building a list first, so callers can stop early.
+     * 
+     * @param order the traversal order
+     * @return an iterator over the nodes of this tree
+     */
+    public Iterator<WordNode> iterator(TreeTraversal.Order order) {
+        return TreeTraversal.iterator(root, order);
+    }
+
+    /**
+     * @return a spliterator over the nodes in in-order
+     */
+    @Override
+    public Spliterator<WordNode> spliterator() {
+        return TreeTraversal.spliterator(root, TreeTraversal.Order.IN_ORDER);
+    }
+
+    /**
+     * @param order the traversal order
+     * @return a sequential stream of the nodes of this tree
+     */
+    public Stream<WordNode> stream(TreeTraversal.Order order) {
+        return TreeTraversal.stream(root, order);
     }
 
     /**
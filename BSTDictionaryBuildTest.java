@@ -0,0 +1,91 @@
+package dictionary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static dictionary.DictionaryChecks.check;
+
+/**
+ * Behaviour tests for building a BSTDictionary from a list:
+ * - sorted, shuffled and reversed input with repeated words all give the words of a TreeMap
+ *   that kept the first definition of each, like addWord would;
+ * - the tree is as low as a tree of that many words can be, with correct heights and sizes;
+ * - the entries are copied, so the tree shares no nodes with the list and ignores their children;
+ * - a built tree stays a balanced search tree through random adds, updates and removals.
+ *
+ * Usage: java dictionary.BSTDictionaryBuildTest
+ */
+public class BSTDictionaryBuildTest {
+
+    private static final long SEED = 11;
+    private static final int[] SIZES = {0, 1, 2, 3, 7, 8, 100, 5000};
+    private static final int OPERATIONS = 20000;
+    private static final int CHECK_EVERY = 500;
+
+    private BSTDictionaryBuildTest() {
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(SEED);
+        for (int size : SIZES) {
+            List<WordNode> entries = new ArrayList<>();
+            TreeMap<String, String> expected = new TreeMap<>();
+            for (int i = 0; i < size; i++) {
+                String word = DictionaryChecks.randomWord(random);
+                String definition = "loaded " + i;
+                entries.add(new WordNode(word, definition));
+                expected.putIfAbsent(word, definition);
+            }
+            build(size + " shuffled words", entries, expected);
+
+            //a stable sort keeps repeated words in list order, so the first definition is still first
+            List<WordNode> sorted = new ArrayList<>(entries);
+            sorted.sort((a, b) -> a.getWord().compareTo(b.getWord()));
+            build(size + " sorted words", sorted, expected);
+
+            List<WordNode> reversed = new ArrayList<>(sorted);
+            Collections.reverse(reversed);
+            TreeMap<String, String> last = new TreeMap<>();
+            for (WordNode entry : reversed) {
+                last.putIfAbsent(entry.getWord(), entry.getDefinition());
+            }
+            build(size + " reversed words", reversed, last);
+        }
+
+        List<WordNode> entries = new ArrayList<>();
+        TreeMap<String, String> loaded = new TreeMap<>();
+        for (int i = 0; i < OPERATIONS / 4; i++) {
+            String word = DictionaryChecks.randomWord(random);
+            entries.add(new WordNode(word, "loaded " + i));
+            loaded.putIfAbsent(word, "loaded " + i);
+        }
+        BSTDictionary fromList = new BSTDictionary(entries, true);
+        DictionaryChecks.randomOperations("dictionary built from a list", fromList, loaded, random, OPERATIONS, CHECK_EVERY);
+        DictionaryChecks.finish();
+    }
+
+    private static void build(String name, List<WordNode> entries, TreeMap<String, String> expected) {
+        //children on the input must not end up in the tree
+        for (int i = 1; i < entries.size(); i++) {
+            entries.get(i - 1).setRight(entries.get(i));
+        }
+        BSTDictionary dictionary = new BSTDictionary(entries, true);
+        for (WordNode entry : entries) {
+            entry.setRight(null);
+        }
+        DictionaryChecks.checkTree(name, dictionary, expected);
+
+        int lowest = 0;
+        while ((1 << lowest) - 1 < expected.size()) {
+            lowest++;
+        }
+        check(dictionary.height() == lowest,
+                name + " built a tree of height " + dictionary.height() + ", not " + lowest);
+        for (WordNode node : dictionary.inOrder()) {
+            check(!entries.contains(node), name + " put the list's node for " + node.getWord() + " in the tree");
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package dictionary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static dictionary.DictionaryChecks.check;
+
+/**
+ * Behaviour tests for the point operations and statistics of BSTDictionary, on balanced and
+ * plain dictionaries:
+ * - getDefinition, updateDefinition and removeWord, mixed at random with adds, agree with a
+ *   TreeMap given the same operations, and leave a search tree with correct heights and sizes;
+ * - updateDefinition keeps the shape of the tree, and a node handed out before the update
+ *   keeps the old definition;
+ * - height, size and averageDepth match a walk of the tree, and comparisonsPerLookup counts one
+ *   comparison per node on the search path, until resetStatistics clears it.
+ *
+ * Usage: java dictionary.BSTDictionaryLookupTest
+ */
+public class BSTDictionaryLookupTest {
+
+    private static final long SEED = 11;
+    private static final int OPERATIONS = 20000;
+    private static final int CHECK_EVERY = 500;
+    private static final int QUERIES = 2000;
+
+    private BSTDictionaryLookupTest() {
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(SEED);
+        for (boolean balanced : new boolean[] {true, false}) {
+            String name = balanced ? "balanced dictionary" : "plain dictionary";
+            BSTDictionary dictionary = new BSTDictionary(balanced);
+            TreeMap<String, String> expected = new TreeMap<>();
+            DictionaryChecks.randomOperations(name, dictionary, expected, random, OPERATIONS, CHECK_EVERY);
+            lookups(name, dictionary, expected, random);
+            updates(name, dictionary, expected, random);
+            statistics(name, dictionary, random);
+        }
+        DictionaryChecks.finish();
+    }
+
+    private static void lookups(String name, BSTDictionary dictionary, TreeMap<String, String> expected, Random random) {
+        for (int q = 0; q < QUERIES; q++) {
+            String word = DictionaryChecks.randomWord(random);
+            check(DictionaryChecks.equal(dictionary.getDefinition(word), expected.get(word)),
+                    name + " getDefinition(" + word + ") returned " + dictionary.getDefinition(word));
+        }
+    }
+
+    private static void updates(String name, BSTDictionary dictionary, TreeMap<String, String> expected, Random random) {
+        List<String> words = new ArrayList<>(expected.keySet());
+        List<WordNode> before = dictionary.preOrder();
+        WordNode root = dictionary.getRoot();
+        for (int i = 0; i < words.size() / 2; i++) {
+            String word = words.get(random.nextInt(words.size()));
+            //null is a definition like any other
+            String definition = random.nextInt(5) == 0 ? null : "changed " + i;
+            check(dictionary.updateDefinition(word, definition), name + " updateDefinition(" + word + ") returned false");
+            expected.put(word, definition);
+        }
+        String missing = "zzzzzz"; //no random word has a z
+        check(!dictionary.updateDefinition(missing, "never added"), name + " updated a word that is not there");
+        DictionaryChecks.checkTree(name + " after updates", dictionary, expected);
+
+        List<WordNode> after = dictionary.preOrder();
+        boolean sameShape = before.size() == after.size();
+        for (int i = 0; sameShape && i < before.size(); i++) {
+            sameShape = before.get(i).getWord().equals(after.get(i).getWord());
+        }
+        check(sameShape, name + " changed shape when definitions were updated");
+        if (root != null && dictionary.updateDefinition(root.getWord(), "changed at the root")) {
+            check(!"changed at the root".equals(root.getDefinition()),
+                    name + " changed the definition in a node handed out before the update");
+            check("changed at the root".equals(dictionary.getDefinition(root.getWord())),
+                    name + " lost an update at the root");
+            expected.put(root.getWord(), "changed at the root");
+        }
+    }
+
+    private static void statistics(String name, BSTDictionary dictionary, Random random) {
+        //depth of every word, by walking the tree from the root
+        int[] height = new int[1];
+        long[] totalDepth = new long[1];
+        walk(dictionary.getRoot(), 0, height, totalDepth);
+        int size = dictionary.inOrder().size();
+        check(dictionary.size() == size, name + " size() is " + dictionary.size() + ", not " + size);
+        check(dictionary.height() == height[0], name + " height() is " + dictionary.height() + ", not " + height[0]);
+        double averageDepth = size == 0 ? 0.0 : (double) totalDepth[0] / size;
+        check(Math.abs(dictionary.averageDepth() - averageDepth) < 1e-9,
+                name + " averageDepth() is " + dictionary.averageDepth() + ", not " + averageDepth);
+
+        dictionary.resetStatistics();
+        check(dictionary.lookups() == 0 && dictionary.comparisonsPerLookup() == 0.0,
+                name + " statistics are not 0 after resetStatistics");
+        long comparisons = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            String word = DictionaryChecks.randomWord(random);
+            dictionary.getDefinition(word);
+            comparisons += searchPath(dictionary.getRoot(), word);
+        }
+        check(dictionary.lookups() == QUERIES, name + " counted " + dictionary.lookups() + " lookups, not " + QUERIES);
+        double expected = (double) comparisons / QUERIES;
+        check(Math.abs(dictionary.comparisonsPerLookup() - expected) < 1e-9,
+                name + " comparisonsPerLookup() is " + dictionary.comparisonsPerLookup() + ", not " + expected);
+    }
+
+    private static void walk(WordNode node, int depth, int[] height, long[] totalDepth) {
+        if (node == null) {
+            return;
+        }
+        height[0] = Math.max(height[0], depth + 1);
+        totalDepth[0] += depth;
+        walk(node.getLeft(), depth + 1, height, totalDepth);
+        walk(node.getRight(), depth + 1, height, totalDepth);
+    }
+
+    //the number of nodes a search for word compares it with
+    private static int searchPath(WordNode node, String word) {
+        int nodes = 0;
+        while (node != null) {
+            nodes++;
+            int cmp = word.compareTo(node.getWord());
+            if (cmp == 0) {
+                break;
+            }
+            node = cmp < 0 ? node.getLeft() : node.getRight();
+        }
+        return nodes;
+    }
+}
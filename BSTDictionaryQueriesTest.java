@@ -0,0 +1,96 @@
+package dictionary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static dictionary.DictionaryChecks.check;
+
+/**
+ * Behaviour tests for the ordered queries of BSTDictionary: floor, ceiling, rank, select, range
+ * and prefix give the same answers as a TreeMap holding the same words, on balanced, plain and
+ * empty dictionaries, and still do after half of the words are removed. Queries use words both
+ * in and out of the dictionary, select is tried at every rank and just outside them, and range
+ * is also tried with lo after hi.
+ *
+ * Usage: java dictionary.BSTDictionaryQueriesTest
+ */
+public class BSTDictionaryQueriesTest {
+
+    private static final long SEED = 11;
+    private static final int WORDS = 4000;
+    private static final int QUERIES = 3000;
+
+    private BSTDictionaryQueriesTest() {
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(SEED);
+        for (boolean balanced : new boolean[] {true, false}) {
+            String name = balanced ? "balanced dictionary" : "plain dictionary";
+            BSTDictionary dictionary = new BSTDictionary(balanced);
+            TreeMap<String, String> expected = new TreeMap<>();
+            compare("empty " + name, dictionary, expected, random);
+            for (int i = 0; i < WORDS; i++) {
+                String word = DictionaryChecks.randomWord(random);
+                dictionary.addWord(word, "definition " + i);
+                expected.putIfAbsent(word, "definition " + i);
+            }
+            compare(name, dictionary, expected, random);
+            for (int i = 0; i < WORDS / 2; i++) {
+                String word = DictionaryChecks.randomWord(random);
+                dictionary.removeWord(word);
+                expected.remove(word);
+            }
+            compare(name + " after removals", dictionary, expected, random);
+        }
+        DictionaryChecks.finish();
+    }
+
+    private static void compare(String name, BSTDictionary dictionary, TreeMap<String, String> expected, Random random) {
+        List<String> words = new ArrayList<>(expected.keySet());
+        for (int i = 0; i < words.size(); i++) {
+            WordNode node = dictionary.select(i);
+            check(node.getWord().equals(words.get(i)), name + " select(" + i + ") returned " + node.getWord());
+        }
+        for (int rank : new int[] {-1, words.size()}) {
+            try {
+                dictionary.select(rank);
+                check(false, name + " select(" + rank + ") did not throw");
+            } catch (IllegalArgumentException e) {
+                check(true, "");
+            }
+        }
+
+        for (int q = 0; q < QUERIES; q++) {
+            //half the queries are for words in the dictionary
+            String word = !words.isEmpty() && random.nextBoolean() ? words.get(random.nextInt(words.size()))
+                    : DictionaryChecks.randomWord(random);
+            checkWord(name + " floor(" + word + ")", dictionary.floor(word), expected.floorKey(word));
+            checkWord(name + " ceiling(" + word + ")", dictionary.ceiling(word), expected.ceilingKey(word));
+            int rank = expected.headMap(word).size();
+            check(dictionary.rank(word) == rank, name + " rank(" + word + ") returned " + dictionary.rank(word) + ", not " + rank);
+
+            String other = DictionaryChecks.randomWord(random);
+            Map<String, String> between = word.compareTo(other) <= 0 ? expected.subMap(word, true, other, true)
+                    : new TreeMap<>();
+            DictionaryChecks.checkEntries(name + " range(" + word + ", " + other + ")", dictionary.range(word, other), between);
+
+            String prefix = word.substring(0, random.nextInt(word.length() + 1));
+            TreeMap<String, String> starting = new TreeMap<>();
+            for (Map.Entry<String, String> entry : expected.entrySet()) {
+                if (entry.getKey().startsWith(prefix)) {
+                    starting.put(entry.getKey(), entry.getValue());
+                }
+            }
+            DictionaryChecks.checkEntries(name + " prefix(" + prefix + ")", dictionary.prefix(prefix), starting);
+        }
+    }
+
+    private static void checkWord(String name, WordNode actual, String expected) {
+        String word = actual == null ? null : actual.getWord();
+        check(DictionaryChecks.equal(word, expected), name + " returned " + word + ", not " + expected);
+    }
+}
@@ -0,0 +1,75 @@
+package dictionary;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+import static dictionary.DictionaryChecks.check;
+
+/**
+ * Behaviour tests for the AVL balanced mode of BSTDictionary:
+ * - through random adds, updates and removals, the tree stays a search tree with correct
+ *   heights and sizes and AVL balance, and holds the same words as a TreeMap given the same
+ *   operations;
+ * - words added in sorted order leave the tree no taller than the AVL bound, while a plain
+ *   BSTDictionary still degenerates into a list, as it did before balancing was added;
+ * - removing every word keeps the tree balanced down to empty.
+ *
+ * Usage: java dictionary.BalancedBSTDictionaryTest
+ */
+public class BalancedBSTDictionaryTest {
+
+    private static final long SEED = 11;
+    private static final int OPERATIONS = 20000;
+    private static final int CHECK_EVERY = 500;
+    private static final int SORTED_WORDS = 1000;
+
+    private BalancedBSTDictionaryTest() {
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(SEED);
+        TreeMap<String, String> expected = new TreeMap<>();
+        BSTDictionary dictionary = new BSTDictionary(true);
+        DictionaryChecks.randomOperations("balanced dictionary", dictionary, expected, random, OPERATIONS, CHECK_EVERY);
+
+        sortedInsertion();
+        removeAll(dictionary, expected, random);
+        DictionaryChecks.finish();
+    }
+
+    private static void sortedInsertion() {
+        BSTDictionary balanced = new BSTDictionary(true);
+        BSTDictionary plain = new BSTDictionary();
+        TreeMap<String, String> expected = new TreeMap<>();
+        for (int i = 0; i < SORTED_WORDS; i++) {
+            String word = String.format("w%05d", i);
+            balanced.addWord(word, "definition " + i);
+            plain.addWord(word, "definition " + i);
+            expected.put(word, "definition " + i);
+        }
+        DictionaryChecks.checkTree("balanced dictionary of sorted words", balanced, expected);
+        DictionaryChecks.checkTree("plain dictionary of sorted words", plain, expected);
+
+        //an AVL tree of n nodes is less than 1.44 log2(n + 2) high
+        double bound = 1.44 * Math.log(SORTED_WORDS + 2) / Math.log(2);
+        check(balanced.height() < bound, "balanced dictionary of sorted words has height " + balanced.height());
+        check(!plain.isBalanced() && plain.height() == SORTED_WORDS,
+                "plain dictionary of sorted words has height " + plain.height() + ", not " + SORTED_WORDS);
+    }
+
+    private static void removeAll(BSTDictionary dictionary, TreeMap<String, String> expected, Random random) {
+        while (!expected.isEmpty()) {
+            String word = DictionaryChecks.randomWord(random);
+            String key = expected.ceilingKey(word);
+            if (key == null) {
+                key = expected.firstKey();
+            }
+            check(dictionary.removeWord(key), "balanced dictionary removeWord(" + key + ") returned false");
+            expected.remove(key);
+            if (expected.size() % CHECK_EVERY == 0) {
+                DictionaryChecks.checkTree("balanced dictionary with " + expected.size() + " words left", dictionary, expected);
+            }
+        }
+        check(dictionary.getRoot() == null && dictionary.height() == 0, "balanced dictionary is not empty at the end");
+    }
+}
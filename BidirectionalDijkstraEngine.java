@@ -0,0 +1,134 @@
+package rumaps;
+
+/**
+ * Bidirectional Dijkstra on block traffic: one search grows forward from the source over the
+ * out-edges, another grows backward from the target over the in-edges, and the query stops
+ * once the two fringes cannot produce a route cheaper than the best meeting point seen.
+ * 
+ * On long trips each side only has to cover about half the distance, so far fewer
+ * intersections are expanded than with a one-sided search. Like DijkstraEngine, the scratch
+ * arrays are reused between queries and an instance must not be shared between threads.
+ */
+public class BidirectionalDijkstraEngine implements ShortestPathEngine {
+
+    private double[] forwardDist;
+    private double[] backwardDist;
+    private int[] forwardEdge;  // edge into each intersection on the way from the source
+    private int[] backwardEdge; // edge out of each intersection on the way to the target
+    private int[] visitedAt;
+    private int query;
+    private IndexMinPQ forwardFringe;
+    private IndexMinPQ backwardFringe;
+
+    public Route route(RouteGraph graph, int source, int target) {
+        prepare(graph.vertexCount());
+        query++;
+
+        touch(source);
+        touch(target);
+        forwardDist[source] = 0.0;
+        backwardDist[target] = 0.0;
+        forwardFringe.insert(source, 0.0);
+        backwardFringe.insert(target, 0.0);
+
+        double best = source == target ? 0.0 : Double.POSITIVE_INFINITY;
+        int meet = source == target ? source : -1;
+        int expanded = 0;
+
+        while (!forwardFringe.isEmpty() && !backwardFringe.isEmpty()) {
+            //no route through an unsettled intersection can beat the best one found
+            if (forwardFringe.minKey() + backwardFringe.minKey() >= best) {
+                break;
+            }
+            expanded++;
+
+            //grow whichever side has the smaller fringe
+            if (forwardFringe.size() <= backwardFringe.size()) {
+                int current = forwardFringe.delMin();
+                for (int e = graph.firstEdge(current); e < graph.endEdge(current); e++) {
+                    int neighbor = graph.target(e);
+                    touch(neighbor);
+                    double newCost = forwardDist[current] + graph.traffic(e);
+                    if (newCost < forwardDist[neighbor]) {
+                        forwardDist[neighbor] = newCost;
+                        forwardEdge[neighbor] = e;
+                        forwardFringe.insertOrDecrease(neighbor, newCost);
+                        if (newCost + backwardDist[neighbor] < best) {
+                            best = newCost + backwardDist[neighbor];
+                            meet = neighbor;
+                        }
+                    }
+                }
+            } else {
+                int current = backwardFringe.delMin();
+                for (int i = graph.firstInEdge(current); i < graph.endInEdge(current); i++) {
+                    int e = graph.inEdge(i);
+                    int neighbor = graph.source(e);
+                    touch(neighbor);
+                    double newCost = backwardDist[current] + graph.traffic(e);
+                    if (newCost < backwardDist[neighbor]) {
+                        backwardDist[neighbor] = newCost;
+                        backwardEdge[neighbor] = e;
+                        backwardFringe.insertOrDecrease(neighbor, newCost);
+                        if (newCost + forwardDist[neighbor] < best) {
+                            best = newCost + forwardDist[neighbor];
+                            meet = neighbor;
+                        }
+                    }
+                }
+            }
+        }
+        forwardFringe.clear();
+        backwardFringe.clear();
+
+        if (meet == -1) {
+            return Route.unreachable(expanded);
+        }
+
+        int forwardHops = 0;
+        for (int e = forwardEdge[meet]; e != -1; e = forwardEdge[graph.source(e)]) {
+            forwardHops++;
+        }
+        int backwardHops = 0;
+        for (int e = backwardEdge[meet]; e != -1; e = backwardEdge[graph.target(e)]) {
+            backwardHops++;
+        }
+        int[] vertices = new int[forwardHops + backwardHops + 1];
+        int[] edges = new int[forwardHops + backwardHops];
+        vertices[forwardHops] = meet;
+        //the forward half is traced from meet back to the source, the backward half from meet on
+        for (int i = forwardHops - 1; i >= 0; i--) {
+            edges[i] = forwardEdge[vertices[i + 1]];
+            vertices[i] = graph.source(edges[i]);
+        }
+        for (int i = forwardHops; i < edges.length; i++) {
+            edges[i] = backwardEdge[vertices[i]];
+            vertices[i + 1] = graph.target(edges[i]);
+        }
+        return new Route(vertices, edges, best, expanded);
+    }
+
+    private void prepare(int n) {
+        if (forwardDist != null && forwardDist.length >= n) {
+            return;
+        }
+        forwardDist = new double[n];
+        backwardDist = new double[n];
+        forwardEdge = new int[n];
+        backwardEdge = new int[n];
+        visitedAt = new int[n];
+        forwardFringe = new IndexMinPQ(n);
+        backwardFringe = new IndexMinPQ(n);
+        query = 0;
+    }
+
+    private void touch(int v) {
+        if (visitedAt[v] != query) {
+            visitedAt[v] = query;
+            forwardDist[v] = Double.POSITIVE_INFINITY;
+            backwardDist[v] = Double.POSITIVE_INFINITY;
+            forwardEdge[v] = -1;
+            backwardEdge[v] = -1;
+        }
+    }
+}
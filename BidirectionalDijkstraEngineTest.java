@@ -0,0 +1,77 @@
+package rumaps;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static rumaps.RoutingChecks.check;
+
+/**
+ * Behaviour tests for the bidirectional searches:
+ * - BidirectionalDijkstraEngine's routes cost the same as plain Dijkstra's, on a grid and on a
+ *   geometric map, which need not be connected, and are chains of real edges whose traffic adds
+ *   up to their cost;
+ * - minimizeIntersectionsBidirectional returns a path through adjacent intersections from start
+ *   to end with as many intersections as minimizeIntersections, or none when that finds none.
+ *
+ * Usage: java rumaps.BidirectionalDijkstraEngineTest
+ */
+public class BidirectionalDijkstraEngineTest {
+
+    private static final long SEED = 7;
+    private static final int INTERSECTIONS = 1500;
+    private static final int QUERIES = 300;
+
+    private BidirectionalDijkstraEngineTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (String layout : new String[] {"grid", "geometric"}) {
+            RUMaps map = RoutingChecks.generate(layout, INTERSECTIONS, SEED);
+            agreesWithDijkstra(layout, map);
+            fewestIntersectionsAgree(layout, map);
+        }
+        RoutingChecks.finish();
+    }
+
+    private static void agreesWithDijkstra(String name, RUMaps map) {
+        RouteGraph graph = map.getRouteGraph();
+        int[] vertices = RoutingChecks.occupied(graph);
+        DijkstraEngine dijkstra = new DijkstraEngine();
+        BidirectionalDijkstraEngine bidirectional = new BidirectionalDijkstraEngine();
+        Random random = new Random(SEED);
+        for (int q = 0; q < QUERIES; q++) {
+            int source = RoutingChecks.randomVertex(vertices, random);
+            int target = q == 0 ? source : RoutingChecks.randomVertex(vertices, random);
+            Route expected = dijkstra.route(graph, source, target);
+            Route actual = bidirectional.route(graph, source, target);
+            RoutingChecks.checkRoute(name + " bidirectional Dijkstra", graph, source, target, expected, actual);
+        }
+    }
+
+    private static void fewestIntersectionsAgree(String name, RUMaps map) {
+        RouteGraph graph = map.getRouteGraph();
+        int[] vertices = RoutingChecks.occupied(graph);
+        Random random = new Random(SEED + 1);
+        for (int q = 0; q < QUERIES; q++) {
+            Intersection start = graph.intersection(RoutingChecks.randomVertex(vertices, random));
+            Intersection end = q == 0 ? start : graph.intersection(RoutingChecks.randomVertex(vertices, random));
+            ArrayList<Intersection> expected = map.minimizeIntersections(start, end);
+            ArrayList<Intersection> actual = map.minimizeIntersectionsBidirectional(start, end);
+            String query = name + " bidirectional BFS from " + start + " to " + end;
+            if (!check(actual.size() == expected.size(),
+                    query + " has " + actual.size() + " intersections, not " + expected.size())
+                    || actual.isEmpty()) {
+                continue;
+            }
+            check(actual.get(0).equals(start) && actual.get(actual.size() - 1).equals(end),
+                    query + " does not run from start to end");
+            for (int i = 0; i + 1 < actual.size(); i++) {
+                int from = graph.idOf(actual.get(i));
+                int to = graph.idOf(actual.get(i + 1));
+                if (!check(graph.edgeBetween(from, to) != -1, query + " jumps from " + from + " to " + to)) {
+                    break;
+                }
+            }
+        }
+    }
+}
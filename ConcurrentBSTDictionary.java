@@ -0,0 +1,269 @@
+package dictionary;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * A dictionary that many threads can read and add to at the same time.
+ *
+ * The tree is copy-on-write: a published node is never changed again. addWord builds copies of
+ * the nodes on the path from the root to the new word, rebalancing as in BSTDictionary's
+ * balanced mode, and then swaps the new root in with a compare-and-set. If another thread added
+ * a word in between, the copy is thrown away and the insert retried on the newer tree.
+ *
+ * Readers just take the current root and never lock, wait or retry, so lookups scale with the
+ * number of cores. Every read sees one whole version of the tree: a traversal started before an
+ * addWord finishes does not see the new word, even if it runs long after.
+ *
+ * The tree is always AVL balanced, since each insert copies a whole root-to-leaf path and a
+ * degenerate tree would make that O(n).
+ */
+public class ConcurrentBSTDictionary implements Iterable<WordNode> {
+
+    // the current version of the tree; the nodes reachable from it are never modified
+    private final AtomicReference<WordNode> root = new AtomicReference<>();
+
+    /**
+     * Adds a word and its definition. If the word is already in the dictionary, nothing changes.
+     *
+     * @param word       The word to add
+     * @param definition The definition of the word
+     */
+    public void addWord(String word, String definition) {
+        while (true) {
+            WordNode current = root.get();
+            WordNode updated = insert(current, word, definition);
+            if (updated == current || root.compareAndSet(current, updated)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the root of an AVL tree that is a copy of node's subtree with word added, sharing
+     *         every node off the insert path; node itself if word is already there
+     */
+    private static WordNode insert(WordNode node, String word, String definition) {
+        if (node == null) {
+            return new DictionaryNode(word, definition);
+        }
+        int cmp = word.compareTo(node.getWord());
+        if (cmp == 0) {
+            return node;
+        }
+        WordNode child = cmp < 0 ? node.getLeft() : node.getRight();
+        WordNode newChild = insert(child, word, definition);
+        if (newChild == child) {
+            return node; //duplicate further down, nothing was copied
+        }
+        WordNode copy = copy(node);
+        if (cmp < 0) {
+            copy.setLeft(newChild);
+        } else {
+            copy.setRight(newChild);
+        }
+        BSTDictionary.update(copy);
+        return rebalance(copy);
+    }
+
+    /**
+     * Same as BSTDictionary's rebalance, except that node must be a fresh copy and any other
+     * node a rotation changes is copied first.
+     */
+    private static WordNode rebalance(WordNode node) {
+        int balance = BSTDictionary.height(node.getLeft()) - BSTDictionary.height(node.getRight());
+        if (balance > 1) {
+            WordNode left = node.getLeft();
+            if (BSTDictionary.height(left.getLeft()) < BSTDictionary.height(left.getRight())) {
+                node.setLeft(rotateLeft(copy(left))); //left-right case
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            WordNode right = node.getRight();
+            if (BSTDictionary.height(right.getRight()) < BSTDictionary.height(right.getLeft())) {
+                node.setRight(rotateRight(copy(right))); //right-left case
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static WordNode rotateRight(WordNode node) {
+        WordNode left = copy(node.getLeft());
+        node.setLeft(left.getRight());
+        left.setRight(node);
+        BSTDictionary.update(node);
+        BSTDictionary.update(left);
+        return left;
+    }
+
+    private static WordNode rotateLeft(WordNode node) {
+        WordNode right = copy(node.getRight());
+        node.setRight(right.getLeft());
+        right.setLeft(node);
+        BSTDictionary.update(node);
+        BSTDictionary.update(right);
+        return right;
+    }
+
+    private static WordNode copy(WordNode node) {
+        DictionaryNode copy = new DictionaryNode(node.getWord(), node.getDefinition());
+        copy.setLeft(node.getLeft());
+        copy.setRight(node.getRight());
+        BSTDictionary.update(copy);
+        return copy;
+    }
+
+    /**
+     * @param word the word to look up
+     * @return the definition of word, or null if it is not in the dictionary
+     */
+    public String getDefinition(String word) {
+        WordNode ptr = root.get();
+        while (ptr != null) {
+            int cmp = word.compareTo(ptr.getWord());
+            if (cmp == 0) {
+                return ptr.getDefinition();
+            }
+            ptr = cmp < 0 ? ptr.getLeft() : ptr.getRight();
+        }
+        return null;
+    }
+
+    /**
+     * @param word the word to look up
+     * @return true if word is in the dictionary, even if its definition is null
+     */
+    public boolean contains(String word) {
+        WordNode ptr = root.get();
+        while (ptr != null) {
+            int cmp = word.compareTo(ptr.getWord());
+            if (cmp == 0) {
+                return true;
+            }
+            ptr = cmp < 0 ? ptr.getLeft() : ptr.getRight();
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of words in the dictionary
+     */
+    public int size() {
+        return BSTDictionary.size(root.get());
+    }
+
+    /**
+     * @return the node with the greatest word less than or equal to word, or null if there is none
+     */
+    public WordNode floor(String word) {
+        return BSTDictionary.floor(root.get(), word);
+    }
+
+    /**
+     * @return the node with the least word greater than or equal to word, or null if there is none
+     */
+    public WordNode ceiling(String word) {
+        return BSTDictionary.ceiling(root.get(), word);
+    }
+
+    /**
+     * @return the number of words in the dictionary that come before word
+     */
+    public int rank(String word) {
+        return BSTDictionary.rank(root.get(), word);
+    }
+
+    /**
+     * @return the node holding the word with rank words before it
+     * @throws IllegalArgumentException if rank is negative or not less than size()
+     */
+    public WordNode select(int rank) {
+        return BSTDictionary.select(root.get(), rank);
+    }
+
+    /**
+     * @return the nodes of the words from lo to hi, both included, in in-order
+     */
+    public ArrayList<WordNode> range(String lo, String hi) {
+        return BSTDictionary.range(root.get(), lo, hi);
+    }
+
+    /**
+     * @return the nodes of the words starting with prefix, in in-order
+     */
+    public ArrayList<WordNode> prefix(String prefix) {
+        return BSTDictionary.prefix(root.get(), prefix);
+    }
+
+    /**
+     * @return an immutable, array-backed copy of the current version of the dictionary
+     */
+    public FrozenDictionary freeze() {
+        return new FrozenDictionary(root.get());
+    }
+
+    public ArrayList<WordNode> preOrder() {
+        return traverse(TreeTraversal.Order.PRE_ORDER);
+    }
+
+    public ArrayList<WordNode> inOrder() {
+        return traverse(TreeTraversal.Order.IN_ORDER);
+    }
+
+    public ArrayList<WordNode> postOrder() {
+        return traverse(TreeTraversal.Order.POST_ORDER);
+    }
+
+    public ArrayList<WordNode> levelOrder() {
+        return traverse(TreeTraversal.Order.LEVEL_ORDER);
+    }
+
+    private ArrayList<WordNode> traverse(TreeTraversal.Order order) {
+        ArrayList<WordNode> traversal = new ArrayList<>();
+        iterator(order).forEachRemaining(traversal::add);
+        return traversal;
+    }
+
+    /**
+     * @return an iterator over the current version of the tree, in alphabetical order
+     */
+    @Override
+    public Iterator<WordNode> iterator() {
+        return iterator(TreeTraversal.Order.IN_ORDER);
+    }
+
+    /**
+     * @param order the traversal order
+     * @return an iterator over the version of the tree current when it is created; words added
+     *         later are not seen
+     */
+    public Iterator<WordNode> iterator(TreeTraversal.Order order) {
+        return TreeTraversal.iterator(root.get(), order);
+    }
+
+    @Override
+    public Spliterator<WordNode> spliterator() {
+        return TreeTraversal.spliterator(root.get(), TreeTraversal.Order.IN_ORDER);
+    }
+
+    /**
+     * @param order the traversal order
+     * @return a sequential stream over the version of the tree current when it is created
+     */
+    public Stream<WordNode> stream(TreeTraversal.Order order) {
+        return TreeTraversal.stream(root.get(), order);
+    }
+
+    /**
+     * @return the root of the current version of the tree. Its nodes never change, but they
+     *         must not be modified by the caller either.
+     */
+    public WordNode getRoot() {
+        return root.get();
+    }
+}
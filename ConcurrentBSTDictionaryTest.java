@@ -0,0 +1,157 @@
+package dictionary;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static dictionary.DictionaryChecks.check;
+
+/**
+ * Behaviour tests for ConcurrentBSTDictionary:
+ * - several threads adding overlapping sets of words at once leave a balanced search tree that
+ *   holds exactly their union, with no word lost to a retried insert;
+ * - readers running during the adds always see a whole version of the tree: the words of a
+ *   traversal are in order and as many as the version's size, and a word already added before
+ *   a lookup started is found;
+ * - contains is true for a word whose definition is null, and false for a word not there.
+ *
+ * Usage: java dictionary.ConcurrentBSTDictionaryTest
+ */
+public class ConcurrentBSTDictionaryTest {
+
+    private static final long SEED = 11;
+    private static final int WRITERS = 4;
+    private static final int READERS = 2;
+    private static final int WORDS_PER_WRITER = 20000;
+    private static final int ROUNDS = 5;
+
+    private ConcurrentBSTDictionaryTest() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        for (int round = 0; round < ROUNDS; round++) {
+            concurrentAdds("round " + round, SEED + round);
+        }
+        nullDefinitions();
+        DictionaryChecks.finish();
+    }
+
+    private static void concurrentAdds(String name, long seed) throws InterruptedException {
+        ConcurrentBSTDictionary dictionary = new ConcurrentBSTDictionary();
+        //each writer adds its own words and some shared ones; a word's definition depends only
+        //on the word, so it does not matter which writer gets there first
+        String[][] words = new String[WRITERS][WORDS_PER_WRITER];
+        TreeMap<String, String> expected = new TreeMap<>();
+        Random random = new Random(seed);
+        for (int w = 0; w < WRITERS; w++) {
+            for (int i = 0; i < WORDS_PER_WRITER; i++) {
+                String word = random.nextInt(4) == 0 ? "shared" + random.nextInt(WORDS_PER_WRITER / 4)
+                        : "writer" + w + "-" + i;
+                words[w][i] = word;
+                expected.put(word, "definition of " + word);
+            }
+        }
+
+        // progress[w] is how many of its words writer w has finished adding
+        int[] progress = new int[WRITERS];
+        List<String> problems = new ArrayList<>();
+        boolean[] writing = {true};
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < WORDS_PER_WRITER; i++) {
+                    dictionary.addWord(words[writer][i], "definition of " + words[writer][i]);
+                    synchronized (progress) {
+                        progress[writer] = i + 1;
+                    }
+                }
+            }));
+        }
+        for (int r = 0; r < READERS; r++) {
+            Random readerRandom = new Random(seed + r + 1);
+            threads.add(new Thread(() -> {
+                while (true) {
+                    synchronized (progress) {
+                        if (!writing[0]) {
+                            return;
+                        }
+                    }
+                    String problem = read(dictionary, words, progress, readerRandom);
+                    if (problem != null) {
+                        synchronized (problems) {
+                            problems.add(problem);
+                        }
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (int w = 0; w < WRITERS; w++) {
+            threads.get(w).join();
+        }
+        synchronized (progress) {
+            writing[0] = false;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (String problem : problems) {
+            check(false, name + " reader " + problem);
+        }
+        check(dictionary.size() == expected.size(), name + " has size " + dictionary.size() + ", not " + expected.size());
+        DictionaryChecks.checkShape(name, dictionary.getRoot(), true);
+        DictionaryChecks.checkEntries(name + " inOrder", dictionary.inOrder(), expected);
+    }
+
+    /**
+     * Reads the dictionary once while writers may be running.
+     *
+     * @return what went wrong, or null if nothing did
+     */
+    private static String read(ConcurrentBSTDictionary dictionary, String[][] words, int[] progress, Random random) {
+        int writer = random.nextInt(words.length);
+        int done;
+        synchronized (progress) {
+            done = progress[writer];
+        }
+        if (done > 0) {
+            String word = words[writer][random.nextInt(done)];
+            if (!dictionary.contains(word) || dictionary.getDefinition(word) == null) {
+                return "did not find " + word + ", which was already added";
+            }
+        }
+
+        WordNode root = dictionary.getRoot();
+        int count = 0;
+        String previous = null;
+        for (Iterator<WordNode> nodes = TreeTraversal.iterator(root, TreeTraversal.Order.IN_ORDER); nodes.hasNext();) {
+            String word = nodes.next().getWord();
+            if (previous != null && previous.compareTo(word) >= 0) {
+                return "saw " + previous + " before " + word;
+            }
+            previous = word;
+            count++;
+        }
+        if (count != BSTDictionary.size(root)) {
+            return "counted " + count + " words in a version of size " + BSTDictionary.size(root);
+        }
+        return null;
+    }
+
+    private static void nullDefinitions() {
+        ConcurrentBSTDictionary dictionary = new ConcurrentBSTDictionary();
+        dictionary.addWord("beta", "second letter");
+        dictionary.addWord("alpha", null);
+        check(dictionary.contains("alpha"), "contains is false for a word whose definition is null");
+        check(dictionary.getDefinition("alpha") == null, "getDefinition of a word added with null is not null");
+        check(dictionary.contains("beta"), "contains is false for a word in the dictionary");
+        check(!dictionary.contains("gamma"), "contains is true for a word not in the dictionary");
+        check(dictionary.size() == 2, "dictionary with a null definition has size " + dictionary.size());
+    }
+}
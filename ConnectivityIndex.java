@@ -0,0 +1,101 @@
+package rumaps;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Labels every intersection of a RouteGraph with a connected component id, so that "is B
+ * reachable from A" is a single comparison.
+ * 
+ * Every block is added in both directions, so reachability in the graph is symmetric and equals
+ * being in the same connected component. The labeling is a union-find over all edges, run in
+ * parallel: roots are linked with compare-and-set (the larger id always goes under the smaller,
+ * so no cycle can form), and finds use path halving, which is safe to run concurrently.
+ */
+public class ConnectivityIndex {
+
+    private final RouteGraph graph;
+    private final int[] component;
+    private final int componentCount;
+
+    /**
+     * Builds the labels for a graph.
+     * 
+     * @param graph the graph to label
+     */
+    public ConnectivityIndex(RouteGraph graph) {
+        this.graph = graph;
+        int n = graph.vertexCount();
+        AtomicIntegerArray parent = new AtomicIntegerArray(n);
+        for (int v = 0; v < n; v++) {
+            parent.set(v, v);
+        }
+
+        IntStream.range(0, graph.edgeCount()).parallel().forEach(e -> union(parent, graph.source(e), graph.target(e)));
+
+        component = new int[n];
+        IntStream.range(0, n).parallel().forEach(v -> component[v] = find(parent, v));
+
+        int roots = 0;
+        for (int v = 0; v < n; v++) {
+            if (component[v] == v && graph.intersection(v) != null) {
+                roots++;
+            }
+        }
+        componentCount = roots;
+    }
+
+    public RouteGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return the component id of v; two intersections are connected exactly when their ids are equal
+     */
+    public int component(int v) {
+        return component[v];
+    }
+
+    public boolean connected(int a, int b) {
+        return component[a] == component[b];
+    }
+
+    public int componentCount() {
+        return componentCount;
+    }
+
+    private static void union(AtomicIntegerArray parent, int a, int b) {
+        while (true) {
+            a = find(parent, a);
+            b = find(parent, b);
+            if (a == b) {
+                return;
+            }
+            //always hang the larger root under the smaller one
+            if (a < b) {
+                int swap = a;
+                a = b;
+                b = swap;
+            }
+            if (parent.compareAndSet(a, a, b)) {
+                return;
+            }
+            //a was linked by another thread in the meantime, so try again from the new roots
+        }
+    }
+
+    private static int find(AtomicIntegerArray parent, int v) {
+        while (true) {
+            int p = parent.get(v);
+            if (p == v) {
+                return v;
+            }
+            int grandparent = parent.get(p);
+            if (p != grandparent) {
+                //path halving; losing this race only skips a shortcut
+                parent.compareAndSet(v, p, grandparent);
+            }
+            v = grandparent;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package rumaps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import static rumaps.RoutingChecks.check;
+
+/**
+ * Behaviour tests for ConnectivityIndex and the reachability queries on RUMaps, on a grid and
+ * on geometric maps sparse enough to fall apart into several pieces:
+ * - the component labels and count agree with components found by a plain breadth-first search,
+ *   and isReachable agrees with them;
+ * - reachableIntersections returns the intersections of the start's component in the order a
+ *   recursive depth-first search visits them.
+ *
+ * Usage: java rumaps.ConnectivityIndexTest
+ */
+public class ConnectivityIndexTest {
+
+    private static final long SEED = 7;
+    private static final int QUERIES = 2000;
+    private static final int SOURCES = 20;
+
+    private ConnectivityIndexTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        checkMap("grid", RoutingChecks.generate("grid", 1500, SEED));
+        boolean split = false;
+        for (int i = 0; i < 5; i++) {
+            //small geometric maps are the most likely to be disconnected
+            RUMaps map = RoutingChecks.generate("geometric", 60 + 40 * i, SEED + i);
+            split |= map.getConnectivityIndex().componentCount() > 1;
+            checkMap("geometric " + i, map);
+        }
+        check(split, "no geometric map had more than one component, so nothing was tested across components");
+        RoutingChecks.finish();
+    }
+
+    private static void checkMap(String name, RUMaps map) {
+        RouteGraph graph = map.getRouteGraph();
+        int[] vertices = RoutingChecks.occupied(graph);
+        int[] label = new int[graph.vertexCount()];
+        int components = breadthFirstLabels(graph, vertices, label);
+
+        ConnectivityIndex index = map.getConnectivityIndex();
+        check(index.componentCount() == components,
+                name + " has " + index.componentCount() + " components, breadth-first search found " + components);
+        Random random = new Random(SEED);
+        for (int q = 0; q < QUERIES; q++) {
+            int a = RoutingChecks.randomVertex(vertices, random);
+            int b = q % 4 == 0 ? vertices[0] : RoutingChecks.randomVertex(vertices, random);
+            boolean expected = label[a] == label[b];
+            check(index.connected(a, b) == expected, name + " connected(" + a + ", " + b + ") is not " + expected);
+            check(map.isReachable(graph.intersection(a), graph.intersection(b)) == expected,
+                    name + " isReachable(" + a + ", " + b + ") is not " + expected);
+        }
+
+        for (int s = 0; s < SOURCES; s++) {
+            int source = RoutingChecks.randomVertex(vertices, random);
+            ArrayList<Intersection> expected = new ArrayList<>();
+            recursiveDepthFirst(graph, source, new boolean[graph.vertexCount()], expected);
+            ArrayList<Intersection> actual = map.reachableIntersections(graph.intersection(source));
+            check(actual.equals(expected), name + " reachableIntersections from " + source + " returned "
+                    + actual.size() + " intersections in a different order from the recursive search's " + expected.size());
+        }
+    }
+
+    /**
+     * Labels each intersection with the number of its component.
+     *
+     * @return the number of components
+     */
+    private static int breadthFirstLabels(RouteGraph graph, int[] vertices, int[] label) {
+        Arrays.fill(label, -1);
+        int[] queue = new int[graph.vertexCount()];
+        int components = 0;
+        for (int start : vertices) {
+            if (label[start] != -1) {
+                continue;
+            }
+            int head = 0;
+            int tail = 0;
+            label[start] = components;
+            queue[tail++] = start;
+            while (head < tail) {
+                int v = queue[head++];
+                for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                    if (label[graph.target(e)] == -1) {
+                        label[graph.target(e)] = components;
+                        queue[tail++] = graph.target(e);
+                    }
+                }
+            }
+            components++;
+        }
+        return components;
+    }
+
+    private static void recursiveDepthFirst(RouteGraph graph, int v, boolean[] visited, ArrayList<Intersection> order) {
+        visited[v] = true;
+        order.add(graph.intersection(v));
+        for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+            if (!visited[graph.target(e)]) {
+                recursiveDepthFirst(graph, graph.target(e), visited, order);
+            }
+        }
+    }
+}
@@ -0,0 +1,908 @@
+package rumaps;
+
+import java.util.Arrays;
+
+/**
+ * A contraction hierarchy over the traffic weights of a RouteGraph, for answering many
+ * point-to-point queries against the same map.
+ *
+ * Preprocessing ranks every intersection and contracts them from least to most important.
+ * Contracting v removes it from the remaining graph, adding a shortcut u -> w of weight
+ * traffic(u, v) + traffic(v, w) whenever that detour through v might be the only shortest way
+ * from u to w (a bounded "witness" search looks for another path that is no longer).
+ *
+ * A query then runs a bidirectional Dijkstra that only ever moves to higher ranked
+ * intersections, which settles a few hundred intersections even on large maps. The shortcuts
+ * along the route found are unpacked back into the original blocks.
+ *
+ * Traffic changes keep the contraction order, and only the intersections whose contraction may
+ * have changed are contracted again. Contracting v depends only on the arcs at v and on the
+ * witness paths that let it skip a shortcut, so each intersection remembers the arcs of its
+ * witness paths. trafficChanged() just records the edge; the next query refreshes the weights
+ * of the recorded edges and re-contracts, in rank order:
+ * - the two ends of every changed edge, and the intersections that used it as a witness;
+ * - then, for every shortcut that is added, dropped or reweighted, its two ends and the
+ *   intersections that used it as a witness, which always rank higher than its maker.
+ * The rest of the hierarchy is left in place, so a repair usually touches a handful of
+ * intersections, and several changes between two queries are repaired together.
+ *
+ * An instance is not safe for use by several threads at once.
+ */
+public class ContractionHierarchy implements ShortestPathEngine {
+
+    // stop a witness search after settling this many intersections; a missed witness
+    // only costs an unneeded shortcut, never a wrong answer
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+    // scoring an intersection only estimates its shortcuts, so it can use a much smaller search
+    private static final int SIMULATION_SETTLE_LIMIT = 50;
+    // arcCreator of a shortcut whose maker is being contracted again
+    private static final int RETIRED = -2;
+
+    private RouteGraph graph;
+    private int n;
+    private int[] rank; // rank[v] is the position of v in the contraction order
+    private int time;   // rank of the intersection being contracted; arcs below it are gone
+
+    // arcs are the original edges, with the same ids, plus the shortcuts; a shortcut is made
+    // of two lower arcs
+    private int arcCount;
+    private int[] arcFrom;   // -1 for a free arc id
+    private int[] arcTo;
+    private double[] arcWeight;
+    private int[] arcEdge;    // the RouteGraph edge of an original arc, or -1 for a shortcut
+    private int[] arcFirst;   // the arc u -> v of a shortcut u -> w through v
+    private int[] arcSecond;  // the arc v -> w of a shortcut u -> w through v
+    private int[] arcCreator; // v for a shortcut through v, -1 for an original arc
+    private int[] freeArcs;
+    private int freeCount;
+
+    // search graph: arcs leading up in rank, indexed by their lower end
+    private int[] upOffsets;
+    private int[] upArcs;    // arcs u -> w with rank[w] > rank[u], grouped by u
+    private int[] downOffsets;
+    private int[] downArcs;  // arcs u -> w with rank[u] > rank[w], grouped by w
+
+    // arcs at each intersection; while preprocessing only the ones to intersections not
+    // contracted yet, afterward all of them, highest ranked other end first
+    private int[][] outArcs;
+    private int[] outSize;
+    private int[][] inArcs;
+    private int[] inSize;
+    private int[][] ownArcs; // shortcuts made by contracting each intersection
+    private int[] ownSize;
+
+    // witness dependencies
+    private int[][] witnessArcs;  // arcs on the witness paths each intersection relied on
+    private int[] version;        // bumped each time an intersection is contracted again
+    private int[][] dependents;   // intersections whose witness paths use each arc...
+    private int[][] dependentVersions; // ...and their version when they used it
+    private int[] dependentCount;
+    private int[] recorded = new int[16];
+    private int recordedCount;
+    private int[] recordedAt;
+    private int recordQuery;
+
+    // repair state
+    private int[] changedEdges = new int[16];
+    private int changedCount;
+    private boolean[] edgeChanged;
+    private IndexMinPQ dirty; // intersections to contract again, keyed by rank
+    private int[] retired = new int[16];
+    private int retiredCount;
+    private int repaired;
+
+    // witness search scratch
+    private double[] witnessDist;
+    private int[] witnessPred; // arc used to reach each intersection, -1 for the source
+    private int[] witnessSeenAt;
+    private int witnessQuery;
+    private int[] witnessTargetAt;
+    private int witnessTargetQuery;
+    private IndexMinPQ witnessFringe;
+
+    // query scratch
+    private double[] forwardDist;
+    private double[] backwardDist;
+    private int[] forwardArc;  // arc used to reach each intersection from the source
+    private int[] backwardArc; // arc used to reach the target from each intersection
+    private int[] visitedAt;
+    private int query;
+    private IndexMinPQ forwardFringe;
+    private IndexMinPQ backwardFringe;
+
+    /**
+     * Creates an empty hierarchy; it is built for a graph the first time that graph is queried.
+     */
+    public ContractionHierarchy() {
+    }
+
+    /**
+     * Creates the hierarchy for a graph right away.
+     *
+     * @param graph the graph to preprocess
+     */
+    public ContractionHierarchy(RouteGraph graph) {
+        preprocess(graph);
+    }
+
+    /**
+     * Orders and contracts every intersection of the graph from scratch.
+     *
+     * @param graph the graph to preprocess
+     */
+    public void preprocess(RouteGraph graph) {
+        this.graph = graph;
+        n = graph.vertexCount();
+        rank = new int[n];
+        Arrays.fill(rank, Integer.MAX_VALUE); //not contracted yet
+        initializeContraction();
+
+        //lazy updates: a popped intersection is re-scored, and put back if it got worse than the next one
+        IndexMinPQ order = new IndexMinPQ(n);
+        int[] contractedNeighbors = new int[n];
+        int[] level = new int[n];
+        time = 0;
+        for (int v = 0; v < n; v++) {
+            order.insert(v, priority(v, contractedNeighbors, level));
+        }
+        while (!order.isEmpty()) {
+            int v = order.delMin();
+            double priority = priority(v, contractedNeighbors, level);
+            if (!order.isEmpty() && priority > order.minKey()) {
+                order.insert(v, priority);
+                continue;
+            }
+
+            rank[v] = time;
+            contract(v, false);
+            for (int i = 0; i < outSize[v]; i++) {
+                int w = arcTo[outArcs[v][i]];
+                if (rank[w] > time) {
+                    contractedNeighbors[w]++;
+                    level[w] = Math.max(level[w], level[v] + 1);
+                }
+            }
+            for (int i = 0; i < inSize[v]; i++) {
+                int u = arcFrom[inArcs[v][i]];
+                if (rank[u] > time) {
+                    contractedNeighbors[u]++;
+                    level[u] = Math.max(level[u], level[v] + 1);
+                }
+            }
+            detach(v);
+            time++;
+        }
+        //new shortcuts mark their ends for a repair, which nothing needs here
+        dirty.clear();
+
+        buildAdjacency();
+        buildSearchGraph();
+    }
+
+    /**
+     * Contracts every intersection again in the saved order, picking up the current traffic
+     * of every edge. Only needed if the graph's traffic was changed without trafficChanged()
+     * being called; otherwise queries repair the hierarchy as they go.
+     */
+    public void rebuild() {
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            arcWeight[e] = graph.traffic(e);
+        }
+        for (int v = 0; v < n; v++) {
+            markDirty(v);
+        }
+        repair();
+    }
+
+    /**
+     * Records that the traffic on an edge changed; the next query repairs the hierarchy.
+     */
+    @Override
+    public void trafficChanged(int edge) {
+        if (graph == null || edgeChanged[edge]) {
+            return;
+        }
+        edgeChanged[edge] = true;
+        if (changedCount == changedEdges.length) {
+            changedEdges = Arrays.copyOf(changedEdges, changedCount * 2);
+        }
+        changedEdges[changedCount++] = edge;
+    }
+
+    /**
+     * @return the number of shortcuts in the hierarchy
+     */
+    public int shortcutCount() {
+        return arcCount - freeCount - graph.edgeCount();
+    }
+
+    /**
+     * @return the number of intersections contracted again by the last repair
+     */
+    public int repairedCount() {
+        return repaired;
+    }
+
+    public Route route(RouteGraph graph, int source, int target) {
+        if (graph != this.graph) {
+            preprocess(graph);
+        } else if (changedCount > 0) {
+            refreshChangedEdges();
+            repair();
+        }
+        query++;
+
+        touch(source);
+        touch(target);
+        forwardDist[source] = 0.0;
+        backwardDist[target] = 0.0;
+        forwardFringe.insert(source, 0.0);
+        backwardFringe.insert(target, 0.0);
+
+        double best = Double.POSITIVE_INFINITY;
+        int meet = -1;
+        int expanded = 0;
+        while (true) {
+            //each side stops once it cannot improve on the best meeting found
+            boolean forwardActive = !forwardFringe.isEmpty() && forwardFringe.minKey() < best;
+            boolean backwardActive = !backwardFringe.isEmpty() && backwardFringe.minKey() < best;
+            if (!forwardActive && !backwardActive) {
+                break;
+            }
+            boolean forward = forwardActive
+                    && (!backwardActive || forwardFringe.minKey() <= backwardFringe.minKey());
+
+            int current = forward ? forwardFringe.delMin() : backwardFringe.delMin();
+            expanded++;
+            if (forwardDist[current] + backwardDist[current] < best) {
+                best = forwardDist[current] + backwardDist[current];
+                meet = current;
+            }
+
+            if (forward) {
+                for (int i = upOffsets[current]; i < upOffsets[current + 1]; i++) {
+                    int arc = upArcs[i];
+                    int neighbor = arcTo[arc];
+                    touch(neighbor);
+                    double newCost = forwardDist[current] + arcWeight[arc];
+                    if (newCost < forwardDist[neighbor]) {
+                        forwardDist[neighbor] = newCost;
+                        forwardArc[neighbor] = arc;
+                        forwardFringe.insertOrDecrease(neighbor, newCost);
+                    }
+                }
+            } else {
+                for (int i = downOffsets[current]; i < downOffsets[current + 1]; i++) {
+                    int arc = downArcs[i];
+                    int neighbor = arcFrom[arc];
+                    touch(neighbor);
+                    double newCost = backwardDist[current] + arcWeight[arc];
+                    if (newCost < backwardDist[neighbor]) {
+                        backwardDist[neighbor] = newCost;
+                        backwardArc[neighbor] = arc;
+                        backwardFringe.insertOrDecrease(neighbor, newCost);
+                    }
+                }
+            }
+        }
+        forwardFringe.clear();
+        backwardFringe.clear();
+
+        if (meet == -1) {
+            return Route.unreachable(expanded);
+        }
+        int[] edges = unpack(meet);
+        int[] vertices = new int[edges.length + 1];
+        vertices[0] = source;
+        for (int i = 0; i < edges.length; i++) {
+            vertices[i + 1] = graph.target(edges[i]);
+        }
+        return new Route(vertices, edges, best, expanded);
+    }
+
+    /**
+     * Expands the arcs from the source up to meet and from meet down to the target into
+     * the edges of the original graph.
+     */
+    private int[] unpack(int meet) {
+        //arcs on the way up, collected backwards from meet
+        int upCount = 0;
+        for (int v = meet; forwardArc[v] != -1; v = arcFrom[forwardArc[v]]) {
+            upCount++;
+        }
+        int downCount = 0;
+        for (int v = meet; backwardArc[v] != -1; v = arcTo[backwardArc[v]]) {
+            downCount++;
+        }
+        int[] arcs = new int[upCount + downCount];
+        int i = upCount;
+        for (int v = meet; forwardArc[v] != -1; v = arcFrom[forwardArc[v]]) {
+            arcs[--i] = forwardArc[v];
+        }
+        i = upCount;
+        for (int v = meet; backwardArc[v] != -1; v = arcTo[backwardArc[v]]) {
+            arcs[i++] = backwardArc[v];
+        }
+
+        //replace every shortcut by its two halves until only original arcs are left
+        int[] stack = new int[16];
+        int[] edges = new int[16];
+        int count = 0;
+        int top = 0;
+        for (int a = arcs.length - 1; a >= 0; a--) {
+            if (top == stack.length) {
+                stack = Arrays.copyOf(stack, top * 2);
+            }
+            stack[top++] = arcs[a];
+        }
+        while (top > 0) {
+            int arc = stack[--top];
+            if (arcEdge[arc] != -1) {
+                if (count == edges.length) {
+                    edges = Arrays.copyOf(edges, count * 2);
+                }
+                edges[count++] = arcEdge[arc];
+            } else {
+                if (top + 2 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[top++] = arcSecond[arc];
+                stack[top++] = arcFirst[arc];
+            }
+        }
+        return Arrays.copyOf(edges, count);
+    }
+
+    /**
+     * Resets the contraction state to the original edges of the graph with their current traffic.
+     */
+    private void initializeContraction() {
+        int edgeCount = graph.edgeCount();
+        int capacity = Math.max(16, edgeCount * 2);
+        arcFrom = new int[capacity];
+        arcTo = new int[capacity];
+        arcWeight = new double[capacity];
+        arcEdge = new int[capacity];
+        arcFirst = new int[capacity];
+        arcSecond = new int[capacity];
+        arcCreator = new int[capacity];
+        dependents = new int[capacity][];
+        dependentVersions = new int[capacity][];
+        dependentCount = new int[capacity];
+        recordedAt = new int[capacity];
+        recordQuery = 0;
+        arcCount = 0;
+        freeArcs = new int[16];
+        freeCount = 0;
+
+        outArcs = new int[n][];
+        inArcs = new int[n][];
+        outSize = new int[n];
+        inSize = new int[n];
+        ownArcs = new int[n][];
+        ownSize = new int[n];
+        witnessArcs = new int[n][];
+        version = new int[n];
+        for (int v = 0; v < n; v++) {
+            outArcs[v] = new int[graph.endEdge(v) - graph.firstEdge(v) + 2];
+            inArcs[v] = new int[graph.endInEdge(v) - graph.firstInEdge(v) + 2];
+            ownArcs[v] = new int[2];
+        }
+
+        for (int e = 0; e < edgeCount; e++) {
+            addArc(graph.source(e), graph.target(e), graph.traffic(e), e, -1, -1, -1);
+        }
+        edgeChanged = new boolean[edgeCount];
+        changedCount = 0;
+        dirty = new IndexMinPQ(n);
+
+        if (witnessDist == null || witnessDist.length < n) {
+            witnessDist = new double[n];
+            witnessPred = new int[n];
+            witnessSeenAt = new int[n];
+            witnessTargetAt = new int[n];
+            witnessTargetQuery = 0;
+            witnessFringe = new IndexMinPQ(n);
+            witnessQuery = 0;
+
+            forwardDist = new double[n];
+            backwardDist = new double[n];
+            forwardArc = new int[n];
+            backwardArc = new int[n];
+            visitedAt = new int[n];
+            forwardFringe = new IndexMinPQ(n);
+            backwardFringe = new IndexMinPQ(n);
+            query = 0;
+        }
+    }
+
+    /**
+     * The edge difference of contracting v (shortcuts added minus arcs removed), plus the number
+     * of neighbors already contracted and the level v would sit at, so that contraction spreads
+     * evenly over the map instead of building long chains.
+     */
+    private double priority(int v, int[] contractedNeighbors, int[] level) {
+        return 2 * (contract(v, true) - outSize[v] - inSize[v]) + contractedNeighbors[v] + level[v];
+    }
+
+    /**
+     * @return true if the arc is still in the graph when the intersection of rank time is
+     *         contracted: both its ends are not contracted yet, and it is an original arc or a
+     *         shortcut made no later than that
+     */
+    private boolean remaining(int arc) {
+        int creator = arcCreator[arc];
+        return rank[arcFrom[arc]] >= time && rank[arcTo[arc]] >= time
+                && (creator == -1 || creator != RETIRED && rank[creator] <= time);
+    }
+
+    /**
+     * Finds the shortcuts needed to remove v from the remaining graph. When not simulating,
+     * the shortcuts are added and the arcs of the witness paths that made the others
+     * unnecessary are recorded.
+     *
+     * @param v the intersection to contract
+     * @param simulate if true, only count the shortcuts without adding them
+     * @return the number of shortcuts needed
+     */
+    private int contract(int v, boolean simulate) {
+        int needed = 0;
+        if (!simulate) {
+            recordQuery++;
+            recordedCount = 0;
+        }
+        for (int i = 0; i < inSize[v]; i++) {
+            int in = inArcs[v][i];
+            int u = arcFrom[in];
+            if (rank[u] < time) {
+                break;
+            }
+            if (u == v || !remaining(in)) {
+                continue;
+            }
+
+            //the witness search only has to settle the out-neighbors of v
+            witnessTargetQuery++;
+            int targets = 0;
+            double maxCost = -1.0;
+            for (int j = 0; j < outSize[v]; j++) {
+                int out = outArcs[v][j];
+                int w = arcTo[out];
+                if (rank[w] < time) {
+                    break;
+                }
+                if (w != v && w != u && remaining(out)) {
+                    maxCost = Math.max(maxCost, arcWeight[in] + arcWeight[out]);
+                    if (witnessTargetAt[w] != witnessTargetQuery) {
+                        witnessTargetAt[w] = witnessTargetQuery;
+                        targets++;
+                    }
+                }
+            }
+            if (targets == 0) {
+                continue;
+            }
+
+            witnessSearch(u, v, maxCost, targets, simulate ? SIMULATION_SETTLE_LIMIT : WITNESS_SETTLE_LIMIT);
+            for (int j = 0; j < outSize[v]; j++) {
+                int out = outArcs[v][j];
+                int w = arcTo[out];
+                if (rank[w] < time) {
+                    break;
+                }
+                if (w == v || w == u || !remaining(out)) {
+                    continue;
+                }
+                double cost = arcWeight[in] + arcWeight[out];
+                if (witnessDistance(w) <= cost) {
+                    if (!simulate) {
+                        recordWitness(w);
+                    }
+                    continue;
+                }
+                needed++;
+                if (!simulate) {
+                    addShortcut(v, u, w, cost, in, out);
+                    //later checks from u can use the new shortcut as a witness
+                    witnessSeenAt[w] = witnessQuery;
+                    witnessDist[w] = cost;
+                    witnessPred[w] = -1;
+                }
+            }
+        }
+        if (!simulate) {
+            witnessArcs[v] = Arrays.copyOf(recorded, recordedCount);
+            for (int i = 0; i < recordedCount; i++) {
+                addDependent(recorded[i], v);
+            }
+        }
+        return needed;
+    }
+
+    /**
+     * Runs a Dijkstra from source over the remaining graph without passing through excluded,
+     * stopping once all marked targets are settled, past maxCost, or after settleLimit
+     * settled intersections.
+     */
+    private void witnessSearch(int source, int excluded, double maxCost, int targets, int settleLimit) {
+        witnessQuery++;
+        witnessSeenAt[source] = witnessQuery;
+        witnessDist[source] = 0.0;
+        witnessPred[source] = -1;
+        witnessFringe.insert(source, 0.0);
+
+        int settled = 0;
+        while (!witnessFringe.isEmpty() && witnessFringe.minKey() <= maxCost && settled < settleLimit) {
+            int current = witnessFringe.delMin();
+            settled++;
+            if (witnessTargetAt[current] == witnessTargetQuery && --targets == 0) {
+                break;
+            }
+            for (int i = 0; i < outSize[current]; i++) {
+                int arc = outArcs[current][i];
+                int neighbor = arcTo[arc];
+                if (rank[neighbor] < time) {
+                    break;
+                }
+                if (neighbor == excluded || !remaining(arc)) {
+                    continue;
+                }
+                double newCost = witnessDist[current] + arcWeight[arc];
+                if (newCost < witnessDistance(neighbor)) {
+                    witnessSeenAt[neighbor] = witnessQuery;
+                    witnessDist[neighbor] = newCost;
+                    witnessPred[neighbor] = arc;
+                    witnessFringe.insertOrDecrease(neighbor, newCost);
+                }
+            }
+        }
+        witnessFringe.clear();
+    }
+
+    private double witnessDistance(int v) {
+        return witnessSeenAt[v] == witnessQuery ? witnessDist[v] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Records the arcs of the path the last witness search found to w.
+     */
+    private void recordWitness(int w) {
+        for (int v = w; witnessPred[v] != -1; v = arcFrom[witnessPred[v]]) {
+            int arc = witnessPred[v];
+            if (recordedAt[arc] != recordQuery) {
+                recordedAt[arc] = recordQuery;
+                if (recordedCount == recorded.length) {
+                    recorded = Arrays.copyOf(recorded, recordedCount * 2);
+                }
+                recorded[recordedCount++] = arc;
+            }
+        }
+    }
+
+    private void addDependent(int arc, int v) {
+        if (dependents[arc] == null) {
+            dependents[arc] = new int[2];
+            dependentVersions[arc] = new int[2];
+        }
+        int count = dependentCount[arc];
+        if (count == dependents[arc].length) {
+            //drop the intersections that were contracted again since they used the arc
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                int d = dependents[arc][i];
+                if (version[d] == dependentVersions[arc][i]) {
+                    dependents[arc][kept] = d;
+                    dependentVersions[arc][kept++] = version[d];
+                }
+            }
+            count = kept;
+            if (count > dependents[arc].length / 2) {
+                dependents[arc] = Arrays.copyOf(dependents[arc], count * 2);
+                dependentVersions[arc] = Arrays.copyOf(dependentVersions[arc], count * 2);
+            }
+        }
+        dependents[arc][count] = v;
+        dependentVersions[arc][count] = version[v];
+        dependentCount[arc] = count + 1;
+    }
+
+    /**
+     * Adds the shortcut u -> w through v. While v is being contracted again, a retired
+     * shortcut of v from u to w is reused instead, so that arcs that did not change keep
+     * their ids and do not disturb anything above them.
+     */
+    private void addShortcut(int v, int u, int w, double cost, int first, int second) {
+        int arc = -1;
+        for (int i = 0; i < retiredCount; i++) {
+            int old = retired[i];
+            if (arcCreator[old] == RETIRED && arcFrom[old] == u && arcTo[old] == w) {
+                arc = old;
+                break;
+            }
+        }
+        if (arc != -1) {
+            arcCreator[arc] = v;
+            arcFirst[arc] = first;
+            arcSecond[arc] = second;
+            if (arcWeight[arc] != cost) {
+                arcWeight[arc] = cost;
+                arcChanged(arc);
+            }
+        } else {
+            arc = addArc(u, w, cost, -1, first, second, v);
+            markDirty(u);
+            markDirty(w);
+        }
+        if (ownSize[v] == ownArcs[v].length) {
+            ownArcs[v] = Arrays.copyOf(ownArcs[v], ownSize[v] * 2);
+        }
+        ownArcs[v][ownSize[v]++] = arc;
+    }
+
+    private int addArc(int from, int to, double weight, int edge, int first, int second, int creator) {
+        int arc;
+        if (freeCount > 0) {
+            arc = freeArcs[--freeCount];
+        } else {
+            if (arcCount == arcFrom.length) {
+                int capacity = arcCount * 2;
+                arcFrom = Arrays.copyOf(arcFrom, capacity);
+                arcTo = Arrays.copyOf(arcTo, capacity);
+                arcWeight = Arrays.copyOf(arcWeight, capacity);
+                arcEdge = Arrays.copyOf(arcEdge, capacity);
+                arcFirst = Arrays.copyOf(arcFirst, capacity);
+                arcSecond = Arrays.copyOf(arcSecond, capacity);
+                arcCreator = Arrays.copyOf(arcCreator, capacity);
+                dependents = Arrays.copyOf(dependents, capacity);
+                dependentVersions = Arrays.copyOf(dependentVersions, capacity);
+                dependentCount = Arrays.copyOf(dependentCount, capacity);
+                recordedAt = Arrays.copyOf(recordedAt, capacity);
+            }
+            arc = arcCount++;
+        }
+        arcFrom[arc] = from;
+        arcTo[arc] = to;
+        arcWeight[arc] = weight;
+        arcEdge[arc] = edge;
+        arcFirst[arc] = first;
+        arcSecond[arc] = second;
+        arcCreator[arc] = creator;
+        dependentCount[arc] = 0;
+
+        outSize[from] = insertByRank(outArcs, outSize[from], from, arc, arcTo);
+        inSize[to] = insertByRank(inArcs, inSize[to], to, arc, arcFrom);
+        return arc;
+    }
+
+    //adds arc to lists[v], before the arcs whose other end (as given by ends) ranks lower
+    private int insertByRank(int[][] lists, int size, int v, int arc, int[] ends) {
+        if (size == lists[v].length) {
+            lists[v] = Arrays.copyOf(lists[v], size * 2);
+        }
+        int[] list = lists[v];
+        int at = size;
+        while (at > 0 && rank[ends[list[at - 1]]] < rank[ends[arc]]) {
+            at--;
+        }
+        System.arraycopy(list, at, list, at + 1, size - at);
+        list[at] = arc;
+        return size + 1;
+    }
+
+    private void removeArc(int arc) {
+        int from = arcFrom[arc];
+        int to = arcTo[arc];
+        outSize[from] = removeFrom(outArcs[from], outSize[from], arc);
+        inSize[to] = removeFrom(inArcs[to], inSize[to], arc);
+        arcFrom[arc] = -1;
+        arcTo[arc] = -1;
+        dependents[arc] = null;
+        dependentVersions[arc] = null;
+        dependentCount[arc] = 0;
+        if (freeCount == freeArcs.length) {
+            freeArcs = Arrays.copyOf(freeArcs, freeCount * 2);
+        }
+        freeArcs[freeCount++] = arc;
+    }
+
+    //drops arc from the first size entries of list, keeping the order, and returns the new size
+    private int removeFrom(int[] list, int size, int arc) {
+        for (int i = 0; i < size; i++) {
+            if (list[i] == arc) {
+                System.arraycopy(list, i + 1, list, i, size - i - 1);
+                return size - 1;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Removes a contracted intersection's arcs from the lists of its remaining neighbors.
+     */
+    private void detach(int v) {
+        for (int i = 0; i < outSize[v]; i++) {
+            int w = arcTo[outArcs[v][i]];
+            inSize[w] = removeArcsTouching(inArcs[w], inSize[w], v, arcFrom);
+        }
+        for (int i = 0; i < inSize[v]; i++) {
+            int u = arcFrom[inArcs[v][i]];
+            outSize[u] = removeArcsTouching(outArcs[u], outSize[u], v, arcTo);
+        }
+    }
+
+    //drops the arcs whose end (as given by ends) is v, returning the new list size
+    private int removeArcsTouching(int[] list, int size, int v, int[] ends) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (ends[list[i]] != v) {
+                list[kept++] = list[i];
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Refills the lists trimmed during preprocessing with every arc, sorted so that a repair
+     * can stop reading a list at the first intersection contracted before the one it is
+     * working on.
+     */
+    private void buildAdjacency() {
+        Arrays.fill(outSize, 0);
+        Arrays.fill(inSize, 0);
+        for (int arc = 0; arc < arcCount; arc++) {
+            outSize[arcFrom[arc]]++;
+            inSize[arcTo[arc]]++;
+        }
+        for (int v = 0; v < n; v++) {
+            outArcs[v] = new int[Math.max(2, outSize[v])];
+            inArcs[v] = new int[Math.max(2, inSize[v])];
+            outSize[v] = 0;
+            inSize[v] = 0;
+        }
+        for (int arc = 0; arc < arcCount; arc++) {
+            outArcs[arcFrom[arc]][outSize[arcFrom[arc]]++] = arc;
+            inArcs[arcTo[arc]][inSize[arcTo[arc]]++] = arc;
+        }
+        for (int v = 0; v < n; v++) {
+            sortByRank(outArcs[v], outSize[v], arcTo);
+            sortByRank(inArcs[v], inSize[v], arcFrom);
+        }
+    }
+
+    //sorts the first size arcs of list by the rank of their other end, highest first
+    private void sortByRank(int[] list, int size, int[] ends) {
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = (long) (n - rank[ends[list[i]]]) << 32 | list[i];
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < size; i++) {
+            list[i] = (int) keys[i];
+        }
+    }
+
+    /**
+     * Picks up the current traffic of the edges passed to trafficChanged().
+     */
+    private void refreshChangedEdges() {
+        for (int i = 0; i < changedCount; i++) {
+            int e = changedEdges[i];
+            edgeChanged[e] = false;
+            if (arcWeight[e] != graph.traffic(e)) {
+                arcWeight[e] = graph.traffic(e);
+                arcChanged(e);
+            }
+        }
+        changedCount = 0;
+    }
+
+    /**
+     * Marks everything that depends on an arc for contraction again: its two ends, whose
+     * shortcuts may use it, and every intersection whose witness paths used it.
+     */
+    private void arcChanged(int arc) {
+        markDirty(arcFrom[arc]);
+        markDirty(arcTo[arc]);
+        for (int i = 0; i < dependentCount[arc]; i++) {
+            int d = dependents[arc][i];
+            if (version[d] == dependentVersions[arc][i]) {
+                markDirty(d);
+            }
+        }
+        dependentCount[arc] = 0;
+    }
+
+    private void markDirty(int v) {
+        if (!dirty.contains(v)) {
+            dirty.insert(v, rank[v]);
+        }
+    }
+
+    /**
+     * Contracts the dirty intersections again from the lowest rank up. Everything a
+     * contraction marks dirty ranks above it, so each one is contracted at most once.
+     */
+    private void repair() {
+        repaired = 0;
+        while (!dirty.isEmpty()) {
+            recontract(dirty.delMin());
+            repaired++;
+        }
+        buildSearchGraph();
+    }
+
+    private void recontract(int v) {
+        time = rank[v];
+        version[v]++;
+
+        //retire the old shortcuts so that they are neither witnesses nor halves
+        retiredCount = 0;
+        for (int i = 0; i < ownSize[v]; i++) {
+            int arc = ownArcs[v][i];
+            arcCreator[arc] = RETIRED;
+            if (retiredCount == retired.length) {
+                retired = Arrays.copyOf(retired, retiredCount * 2);
+            }
+            retired[retiredCount++] = arc;
+        }
+        ownSize[v] = 0;
+
+        contract(v, false);
+
+        for (int i = 0; i < retiredCount; i++) {
+            int arc = retired[i];
+            if (arcCreator[arc] == RETIRED) {
+                arcChanged(arc);
+                removeArc(arc);
+            }
+        }
+        retiredCount = 0;
+    }
+
+    /**
+     * Splits the arcs into upward and downward CSR lists.
+     */
+    private void buildSearchGraph() {
+        upOffsets = new int[n + 1];
+        downOffsets = new int[n + 1];
+        for (int arc = 0; arc < arcCount; arc++) {
+            if (arcFrom[arc] == -1) {
+                continue;
+            }
+            if (rank[arcTo[arc]] > rank[arcFrom[arc]]) {
+                upOffsets[arcFrom[arc] + 1]++;
+            } else if (rank[arcTo[arc]] < rank[arcFrom[arc]]) {
+                downOffsets[arcTo[arc] + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            upOffsets[v + 1] += upOffsets[v];
+            downOffsets[v + 1] += downOffsets[v];
+        }
+
+        upArcs = new int[upOffsets[n]];
+        downArcs = new int[downOffsets[n]];
+        int[] upNext = Arrays.copyOf(upOffsets, n);
+        int[] downNext = Arrays.copyOf(downOffsets, n);
+        for (int arc = 0; arc < arcCount; arc++) {
+            if (arcFrom[arc] == -1) {
+                continue;
+            }
+            if (rank[arcTo[arc]] > rank[arcFrom[arc]]) {
+                upArcs[upNext[arcFrom[arc]]++] = arc;
+            } else if (rank[arcTo[arc]] < rank[arcFrom[arc]]) {
+                downArcs[downNext[arcTo[arc]]++] = arc;
+            }
+        }
+    }
+
+    private void touch(int v) {
+        if (visitedAt[v] != query) {
+            visitedAt[v] = query;
+            forwardDist[v] = Double.POSITIVE_INFINITY;
+            backwardDist[v] = Double.POSITIVE_INFINITY;
+            forwardArc[v] = -1;
+            backwardArc[v] = -1;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package rumaps;
+
+import java.util.Random;
+
+import static rumaps.RoutingChecks.check;
+
+/**
+ * Behaviour tests for ContractionHierarchy:
+ * - its routes cost the same as plain Dijkstra's, on a grid and on a geometric map, and unpack
+ *   into chains of real edges whose traffic adds up to their cost;
+ * - after traffic updates through RUMaps, one or a few between queries, it still agrees with
+ *   Dijkstra, and repairs only part of the hierarchy rather than contracting it again;
+ * - rebuild() after the updates gives the same answers.
+ *
+ * Usage: java rumaps.ContractionHierarchyTest
+ */
+public class ContractionHierarchyTest {
+
+    private static final long SEED = 7;
+    private static final int INTERSECTIONS = 1500;
+    private static final int QUERIES = 300;
+    private static final int UPDATES = 200;
+
+    private ContractionHierarchyTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (String layout : new String[] {"grid", "geometric"}) {
+            RUMaps map = RoutingChecks.generate(layout, INTERSECTIONS, SEED);
+            ContractionHierarchy hierarchy = new ContractionHierarchy(map.getRouteGraph());
+            agreesWithDijkstra(layout, map, hierarchy);
+            agreesAfterUpdates(layout, map, hierarchy);
+            hierarchy.rebuild();
+            agreesWithDijkstra(layout + " rebuilt", map, hierarchy);
+        }
+        RoutingChecks.finish();
+    }
+
+    private static void agreesWithDijkstra(String name, RUMaps map, ContractionHierarchy hierarchy) {
+        RouteGraph graph = map.getRouteGraph();
+        int[] vertices = RoutingChecks.occupied(graph);
+        DijkstraEngine dijkstra = new DijkstraEngine();
+        Random random = new Random(SEED);
+        for (int q = 0; q < QUERIES; q++) {
+            int source = RoutingChecks.randomVertex(vertices, random);
+            int target = q == 0 ? source : RoutingChecks.randomVertex(vertices, random);
+            Route expected = dijkstra.route(graph, source, target);
+            Route actual = hierarchy.route(graph, source, target);
+            RoutingChecks.checkRoute(name + " hierarchy", graph, source, target, expected, actual);
+        }
+    }
+
+    private static void agreesAfterUpdates(String name, RUMaps map, ContractionHierarchy hierarchy) {
+        RouteGraph graph = map.getRouteGraph();
+        int[] vertices = RoutingChecks.occupied(graph);
+        map.setShortestPathEngine(hierarchy);
+        DijkstraEngine dijkstra = new DijkstraEngine();
+        Random random = new Random(SEED + 1);
+        for (int u = 0; u < UPDATES; u++) {
+            //several updates between queries are repaired together
+            int batch = 1 + random.nextInt(3);
+            for (int b = 0; b < batch; b++) {
+                RoutingChecks.updateRandomBlock(map, random);
+            }
+            int source = RoutingChecks.randomVertex(vertices, random);
+            int target = RoutingChecks.randomVertex(vertices, random);
+            Route expected = dijkstra.route(graph, source, target);
+            Route actual = map.fastestRoute(graph.intersection(source), graph.intersection(target));
+            RoutingChecks.checkRoute(name + " hierarchy after updates", graph, source, target, expected, actual);
+            check(hierarchy.repairedCount() < vertices.length / 2,
+                    name + " repair re-contracted " + hierarchy.repairedCount() + " intersections");
+        }
+        map.setShortestPathEngine(new DijkstraEngine());
+    }
+}
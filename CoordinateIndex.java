@@ -0,0 +1,123 @@
+package rumaps;
+
+import java.util.Arrays;
+
+/**
+ * A hash index from (x, y) coordinates to intersection ids.
+ * 
+ * Each coordinate is packed into a single long (x in the high 32 bits, y in the low 32 bits)
+ * and stored in an open-addressing table with linear probing, so lookups and inserts take
+ * O(1) expected time and allocate nothing per call.
+ */
+public class CoordinateIndex {
+
+    private static final long EMPTY = Long.MIN_VALUE; // marks a free slot; (Integer.MIN_VALUE, 0) packs to it and is kept aside
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private boolean hasEmptyKey; // the one coordinate whose packed key equals EMPTY
+    private int emptyKeyValue;
+    private int size;
+
+    public CoordinateIndex() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expected the number of coordinates expected, used to size the table
+     */
+    public CoordinateIndex(int expected) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expected * 2) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Packs a coordinate into the long key used by this index.
+     */
+    public static long pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the id stored for (x, y), or -1 if there is none
+     */
+    public int get(int x, int y) {
+        long key = pack(x, y);
+        if (key == EMPTY) {
+            return hasEmptyKey ? emptyKeyValue : -1;
+        }
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            if (keys[slot] == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Stores the id for (x, y), replacing any id already stored for it.
+     */
+    public void put(int x, int y, int id) {
+        long key = pack(x, y);
+        if (key == EMPTY) {
+            if (!hasEmptyKey) {
+                size++;
+            }
+            hasEmptyKey = true;
+            emptyKeyValue = id;
+            return;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+        }
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == EMPTY) {
+            size++;
+        }
+        keys[slot] = key;
+        values[slot] = id;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    //spreads the packed bits so neighboring coordinates land in different slots
+    private static int hash(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+}
@@ -0,0 +1,153 @@
+package dictionary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Shared setup and checks for the dictionary tests: random words, random operations mirrored in
+ * a TreeMap, tree shape and content checks, and a running count of checks and failures that
+ * each test reports through finish().
+ *
+ * The words use a small alphabet so that many share prefixes, and some hold characters outside
+ * ASCII.
+ */
+final class DictionaryChecks {
+
+    private static final String ALPHABET = "abcdefgh\u00e9\u00df";
+
+    private static int checks;
+    private static int failures;
+
+    private DictionaryChecks() {
+    }
+
+    static String randomWord(Random random) {
+        char[] word = new char[1 + random.nextInt(5)];
+        for (int i = 0; i < word.length; i++) {
+            word[i] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+        }
+        return new String(word);
+    }
+
+    /**
+     * Adds, updates and removes random words in both dictionary and expected, checking the tree
+     * against expected every so often and at the end.
+     */
+    static void randomOperations(String name, BSTDictionary dictionary, TreeMap<String, String> expected,
+            Random random, int operations, int checkEvery) {
+        for (int i = 0; i < operations; i++) {
+            String word = randomWord(random);
+            int operation = random.nextInt(10);
+            if (operation < 6) {
+                dictionary.addWord(word, "definition " + i);
+                expected.putIfAbsent(word, "definition " + i);
+            } else if (operation < 7) {
+                boolean updated = dictionary.updateDefinition(word, "updated " + i);
+                check(updated == expected.containsKey(word), name + " updateDefinition(" + word + ") returned " + updated);
+                expected.replace(word, "updated " + i);
+            } else {
+                boolean removed = dictionary.removeWord(word);
+                check(removed == expected.containsKey(word), name + " removeWord(" + word + ") returned " + removed);
+                expected.remove(word);
+            }
+            if ((i + 1) % checkEvery == 0) {
+                checkTree(name + " after " + (i + 1) + " operations", dictionary, expected);
+            }
+        }
+    }
+
+    /**
+     * Checks that dictionary is a search tree holding the words of expected, that every node
+     * records its true height and size, and, if the dictionary is balanced, that it is in AVL shape.
+     */
+    static void checkTree(String name, BSTDictionary dictionary, TreeMap<String, String> expected) {
+        checkShape(name, dictionary.getRoot(), dictionary.isBalanced());
+        check(dictionary.size() == expected.size(), name + " has size " + dictionary.size() + ", not " + expected.size());
+        checkEntries(name + " inOrder", dictionary.inOrder(), expected);
+    }
+
+    /**
+     * Checks that the tree under root is a search tree whose nodes record their true heights and
+     * sizes, and, if avl is set, that it is in AVL shape.
+     */
+    static void checkShape(String name, WordNode root, boolean avl) {
+        checkNode(name, root, null, null, avl);
+    }
+
+    /**
+     * Checks that every word under node lies strictly between lo and hi, that every node records
+     * its true height and size, and, if avl is set, that the heights of its two subtrees differ
+     * by at most one.
+     *
+     * @return the height of node
+     */
+    private static int checkNode(String name, WordNode node, String lo, String hi, boolean avl) {
+        if (node == null) {
+            return 0;
+        }
+        String word = node.getWord();
+        check((lo == null || lo.compareTo(word) < 0) && (hi == null || word.compareTo(hi) < 0),
+                name + " has " + word + " out of order");
+        int left = checkNode(name, node.getLeft(), lo, word, avl);
+        int right = checkNode(name, node.getRight(), word, hi, avl);
+        DictionaryNode n = (DictionaryNode) node;
+        int size = 1 + BSTDictionary.size(node.getLeft()) + BSTDictionary.size(node.getRight());
+        check(n.getHeight() == 1 + Math.max(left, right),
+                name + " records height " + n.getHeight() + " at " + word + ", not " + (1 + Math.max(left, right)));
+        check(n.getSize() == size, name + " records size " + n.getSize() + " at " + word + ", not " + size);
+        check(!avl || Math.abs(left - right) <= 1,
+                name + " is out of balance at " + word + ": " + left + " and " + right);
+        return 1 + Math.max(left, right);
+    }
+
+    static void checkEntries(String name, List<WordNode> actual, Map<String, String> expected) {
+        List<WordNode> entries = new ArrayList<>();
+        for (Map.Entry<String, String> entry : expected.entrySet()) {
+            entries.add(new WordNode(entry.getKey(), entry.getValue()));
+        }
+        checkSameWords(name, actual, entries);
+    }
+
+    /**
+     * Checks that actual and expected hold the same words with the same definitions, in the same order.
+     */
+    static void checkSameWords(String name, List<WordNode> actual, List<WordNode> expected) {
+        if (!check(actual.size() == expected.size(), name + " returned " + actual.size() + " words, not " + expected.size())) {
+            return;
+        }
+        for (int i = 0; i < actual.size(); i++) {
+            WordNode a = actual.get(i);
+            WordNode e = expected.get(i);
+            if (!check(a.getWord().equals(e.getWord()) && equal(a.getDefinition(), e.getDefinition()),
+                    name + " returned " + a.getWord() + " where " + e.getWord() + " was expected")) {
+                return;
+            }
+        }
+    }
+
+    static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    static boolean check(boolean passed, String message) {
+        checks++;
+        if (!passed) {
+            failures++;
+            System.out.println("FAILED: " + message);
+        }
+        return passed;
+    }
+
+    /**
+     * Prints the number of checks and failures, and exits with status 1 if any check failed.
+     */
+    static void finish() {
+        System.out.println(checks + " checks, " + failures + " failed");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package dictionary;
+
+/**
+ * A WordNode that also records the height and the size (number of nodes) of the subtree below
+ * it, so BSTDictionary can keep itself balanced and answer rank and select queries without
+ * walking the tree.
+ *
+ * A leaf has height 1 and size 1; an empty subtree has height 0 and size 0.
+ */
+public class DictionaryNode extends WordNode {
+
+    private int height = 1;
+    private int size = 1;
+
+    public DictionaryNode(String word, String definition) {
+        super(word, definition);
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public void setHeight(int height) {
+        this.height = height;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+}
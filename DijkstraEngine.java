@@ -0,0 +1,106 @@
+package rumaps;
+
+/**
+ * Dijkstra's algorithm on block traffic, using an indexed min-heap with decrease-key for the fringe.
+ * 
+ * Subclasses may supply a lower bound on the remaining cost to the target through heuristic(),
+ * which turns the search into A*; with the default heuristic of 0 it is plain Dijkstra.
+ * 
+ * Edges are relaxed in adjacency list order and the fringe hands out equal costs in the order
+ * they were first reached, so when several paths are equally cheap this returns the same one
+ * the original fringe scan in RUMaps.fastestPath did.
+ * 
+ * Each query runs in O(E log V). The distance, predecessor edge and heap arrays are kept between
+ * queries and reset lazily, so repeated queries on the same graph do not reallocate them.
+ * An engine instance is not safe for use by several threads at once.
+ */
+public class DijkstraEngine implements ShortestPathEngine {
+
+    private double[] dist;
+    private int[] predEdge;                     // edge used to reach each id, -1 for the source
+    private int[] visitedAt;                    // query number that last touched each id
+    private int query;
+    private IndexMinPQ fringe;
+
+    public Route route(RouteGraph graph, int source, int target) {
+        prepare(graph.vertexCount());
+        query++;
+
+        touch(source);
+        dist[source] = 0.0;
+        fringe.insert(source, heuristic(graph, source, target));
+
+        boolean found = false;
+        int expanded = 0;
+        while (!fringe.isEmpty()) {
+            int current = fringe.delMin();
+            expanded++;
+            if (current == target) {
+                found = true;
+                break;
+            }
+
+            for (int e = graph.firstEdge(current); e < graph.endEdge(current); e++) {
+                int neighbor = graph.target(e);
+                touch(neighbor);
+
+                double newCost = dist[current] + graph.traffic(e);
+                if (newCost < dist[neighbor]) {
+                    dist[neighbor] = newCost;
+                    predEdge[neighbor] = e;
+                    fringe.insertOrDecrease(neighbor, newCost + heuristic(graph, neighbor, target));
+                }
+            }
+        }
+        fringe.clear();
+
+        if (!found) {
+            return Route.unreachable(expanded);
+        }
+        int hops = 0;
+        for (int e = predEdge[target]; e != -1; e = predEdge[graph.source(e)]) {
+            hops++;
+        }
+        int[] vertices = new int[hops + 1];
+        int[] edges = new int[hops];
+        vertices[hops] = target;
+        for (int i = hops - 1; i >= 0; i--) {
+            edges[i] = predEdge[vertices[i + 1]];
+            vertices[i] = graph.source(edges[i]);
+        }
+        return new Route(vertices, edges, dist[target], expanded);
+    }
+
+    /**
+     * Estimates the traffic cost from v to the target. It must never overestimate the true
+     * cost, and must satisfy h(u) <= traffic(u, v) + h(v) along every edge, so that a vertex
+     * is final the first time it is removed from the fringe.
+     * 
+     * @return 0, which makes this engine plain Dijkstra
+     */
+    protected double heuristic(RouteGraph graph, int v, int target) {
+        return 0.0;
+    }
+
+    /**
+     * Sizes the scratch arrays for a graph with n vertices, reusing them if they are big enough.
+     */
+    private void prepare(int n) {
+        if (dist != null && dist.length >= n) {
+            return;
+        }
+        dist = new double[n];
+        predEdge = new int[n];
+        visitedAt = new int[n];
+        fringe = new IndexMinPQ(n);
+        query = 0;
+    }
+
+    private void touch(int v) {
+        if (visitedAt[v] != query) {
+            visitedAt[v] = query;
+            dist[v] = Double.POSITIVE_INFINITY;
+            predEdge[v] = -1;
+        }
+    }
+}
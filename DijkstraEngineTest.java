@@ -0,0 +1,138 @@
+package rumaps;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+
+import static rumaps.RoutingChecks.check;
+
+/**
+ * Behaviour tests for DijkstraEngine, the default engine behind RUMaps.fastestPath:
+ * - IndexMinPQ hands out equal keys in insertion order, and decreaseKey keeps an id's place
+ *   among its ties;
+ * - fastestPath returns exactly the path the original fringe scan returned, not just one as
+ *   cheap, both on a grid where every block has traffic factor 1, so that many routes tie, and
+ *   on a geometric map with random traffic;
+ * - the engine's routes are chains of real edges whose traffic adds up to their cost.
+ *
+ * Usage: java rumaps.DijkstraEngineTest
+ */
+public class DijkstraEngineTest {
+
+    private static final long SEED = 7;
+    private static final int INTERSECTIONS = 400;
+    private static final int QUERIES = 300;
+
+    private DijkstraEngineTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        queueBreaksTiesByInsertion();
+
+        RUMaps grid = RoutingChecks.generate("grid", INTERSECTIONS, SEED);
+        RouteGraph graph = grid.getRouteGraph();
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            if (graph.source(e) < graph.target(e)) {
+                grid.updateTrafficFactor(graph.intersection(graph.source(e)), graph.intersection(graph.target(e)), 1.0);
+            }
+        }
+        pathsMatchOriginal("grid with even traffic", grid);
+        pathsMatchOriginal("geometric", RoutingChecks.generate("geometric", INTERSECTIONS, SEED));
+        RoutingChecks.finish();
+    }
+
+    private static void queueBreaksTiesByInsertion() {
+        IndexMinPQ queue = new IndexMinPQ(6);
+        queue.insert(4, 2.0);
+        queue.insert(1, 1.0);
+        queue.insert(5, 3.0);
+        queue.insert(0, 1.0);
+        queue.insert(3, 2.0);
+        queue.decreaseKey(5, 1.0); //now ties with 1 and 0, and was inserted between them
+        int[] expected = {1, 5, 0, 4, 3};
+        for (int id : expected) {
+            int min = queue.delMin();
+            check(min == id, "IndexMinPQ returned " + min + " where " + id + " was expected");
+        }
+    }
+
+    private static void pathsMatchOriginal(String name, RUMaps map) {
+        RouteGraph graph = map.getRouteGraph();
+        int[] vertices = RoutingChecks.occupied(graph);
+        DijkstraEngine engine = new DijkstraEngine();
+        Random random = new Random(SEED);
+        for (int q = 0; q < QUERIES; q++) {
+            Intersection start = graph.intersection(RoutingChecks.randomVertex(vertices, random));
+            Intersection end = graph.intersection(RoutingChecks.randomVertex(vertices, random));
+            ArrayList<Intersection> expected = originalFastestPath(map.getRutgers(), start, end);
+            ArrayList<Intersection> actual = map.fastestPath(start, end);
+            check(actual.equals(expected), name + " fastestPath from " + start + " to " + end + " returned "
+                    + actual + ", the original returned " + expected);
+
+            int source = graph.idOf(start);
+            int target = graph.idOf(end);
+            Route route = engine.route(graph, source, target);
+            RoutingChecks.checkRoute(name + " DijkstraEngine", graph, source, target, route, route);
+        }
+    }
+
+    /**
+     * fastestPath as it was before the engines: a fringe list scanned for the cheapest entry,
+     * taking the earliest added among equal costs, with each intersection's blocks relaxed in
+     * adjacency list order.
+     */
+    private static ArrayList<Intersection> originalFastestPath(Network network, Intersection start, Intersection end) {
+        ArrayList<Intersection> path = new ArrayList<>();
+        ArrayList<Intersection> fringe = new ArrayList<>();
+        HashSet<Intersection> done = new HashSet<>();
+        HashMap<Intersection, Double> d = new HashMap<>();
+        HashMap<Intersection, Intersection> pred = new HashMap<>();
+
+        d.put(start, 0.0);
+        pred.put(start, null);
+        fringe.add(start);
+
+        while (!fringe.isEmpty()) {
+            Intersection current = fringe.get(0);
+            for (Intersection inter : fringe) {
+                if (d.get(inter) < d.get(current)) {
+                    current = inter;
+                }
+            }
+            fringe.remove(current);
+            if (current.equals(end)) {
+                break;
+            }
+            done.add(current);
+
+            Block ptr = network.getAdjacencyList()[network.findIntersection(
+                    current.getCoordinate().getX(), current.getCoordinate().getY())];
+            for (; ptr != null; ptr = ptr.getNext()) {
+                Intersection neighbor = null;
+                if (ptr.getFirstEndpoint().equals(current)) {
+                    neighbor = ptr.getLastEndpoint();
+                } else if (ptr.getLastEndpoint().equals(current)) {
+                    neighbor = ptr.getFirstEndpoint();
+                }
+                if (neighbor != null && !done.contains(neighbor)) {
+                    double newCost = d.get(current) + ptr.getTraffic();
+                    if (newCost < d.getOrDefault(neighbor, Double.MAX_VALUE)) {
+                        d.put(neighbor, newCost);
+                        pred.put(neighbor, current);
+                        if (!fringe.contains(neighbor)) {
+                            fringe.add(neighbor);
+                        }
+                    }
+                }
+            }
+        }
+
+        for (Intersection v = end; v != null; v = pred.get(v)) {
+            path.add(v);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+}
@@ -0,0 +1,816 @@
+package dictionary;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.NoSuchElementException;
+
+/**
+ * A dictionary kept in a B+-tree on disk, for word lists that do not fit comfortably on the heap.
+ * It is a WordDictionary like BSTDictionary, but only the pages in a fixed-size LRU cache are held
+ * in memory, so the heap needed does not grow with the dictionary. The WordDictionary methods
+ * report read and write errors as UncheckedIOException; opening, flushing and closing the files
+ * throw IOException.
+ *
+ * It uses two files: the tree, in fixed-size pages read and written through a FileChannel, and
+ * the definitions, appended one after another to filename + ".defs". A leaf holds each word with
+ * the position of its definition, so definitions of any length never take up room in the tree.
+ *
+ * Tree file layout (big-endian), one PAGE_SIZE page each:
+ *   page 0:   int magic "RUBT", int version, int page size, int root page, int page count,
+ *             int height, long word count, int first leaf page
+ *   leaf:     byte 0, short entry count, int next leaf page (0 after the last leaf), then per
+ *             entry a short byte length and the UTF-8 bytes of the word, and the long position
+ *             of its definition
+ *   internal: byte 1, short key count, int first child page, then per key a short byte length
+ *             and the UTF-8 bytes of the key, and the int page of the child to its right
+ * A key in an internal page is no greater than any word under the child to its right, and
+ * greater than every word under the children to its left.
+ *
+ * Definitions file: per definition, int byte length (-1 for null) and its UTF-8 bytes.
+ *
+ * Words are ordered by String.compareTo, so scans return them in the same order as
+ * BSTDictionary.inOrder(). Changed pages are written when they leave the cache and on flush()
+ * and close(); the files are not crash safe between flushes. An instance is not safe for use by
+ * several threads at once.
+ */
+public class DiskDictionary implements WordDictionary, Closeable {
+
+    public static final int PAGE_SIZE = 4096;
+
+    // a longest word still leaves room for 3 entries in a page, so a split always makes two valid pages
+    public static final int MAX_WORD_BYTES = 1024;
+
+    // pages an operation may need at once: the path from the root plus the pages its splits create
+    private static final int MIN_CACHE_PAGES = 16;
+
+    private static final int MAGIC = 0x52554254; // "RUBT"
+    private static final int VERSION = 1;
+    private static final int NODE_HEADER = 7; // type byte, count short, next leaf or first child int
+
+    // bulk loading fills pages this far, so the first inserts into them do not split at once
+    private static final int BULK_FILL = PAGE_SIZE * 9 / 10;
+
+    /**
+     * A page decoded into memory.
+     */
+    private static final class Node {
+        int id;
+        final boolean leaf;
+        int next;                   // leaves: page of the next leaf, 0 for none
+        final ArrayList<String> keys = new ArrayList<>();
+        long[] positions;           // leaves: definition positions, parallel to keys
+        int[] children;             // internal: keys.size() + 1 child pages
+        int bytes = NODE_HEADER;    // size of the page once encoded
+        boolean dirty;
+
+        Node(int id, boolean leaf) {
+            this.id = id;
+            this.leaf = leaf;
+            if (leaf) {
+                positions = new long[8];
+            } else {
+                children = new int[8];
+            }
+        }
+    }
+
+    /**
+     * The result of splitting a page: the new page to its right and the key that separates them.
+     */
+    private static final class Split {
+        final String key;
+        final int right;
+
+        Split(String key, int right) {
+            this.key = key;
+            this.right = right;
+        }
+    }
+
+    private final String filename;
+    private final FileChannel pages;
+    private final FileChannel definitions;
+    private final int cachePages;
+    private final LinkedHashMap<Integer, Node> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final ByteBuffer pageBuffer = ByteBuffer.allocate(PAGE_SIZE);
+    private final byte[] wordBuffer = new byte[MAX_WORD_BYTES]; // a key being decoded by readNode
+
+    private int root;
+    private int pageCount = 1; // page 0 is the header
+    private int height;
+    private long size;
+    private int firstLeaf;
+    private long definitionsEnd;
+
+    private boolean inserted; // set by insert when the word was not already there
+    private long pageReads;
+    private long pageWrites;
+
+    private DiskDictionary(String filename, int cachePages, boolean create) throws IOException {
+        if (cachePages < MIN_CACHE_PAGES) {
+            throw new IllegalArgumentException("the cache needs at least " + MIN_CACHE_PAGES + " pages, not " + cachePages);
+        }
+        this.filename = filename;
+        this.cachePages = cachePages;
+        StandardOpenOption[] options = create
+                ? new StandardOpenOption[] {StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE}
+                : new StandardOpenOption[] {StandardOpenOption.READ, StandardOpenOption.WRITE};
+        pages = FileChannel.open(Paths.get(filename), options);
+        try {
+            definitions = FileChannel.open(Paths.get(filename + ".defs"), options);
+        } catch (IOException e) {
+            pages.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates an empty dictionary, replacing any existing files.
+     *
+     * @param filename the tree file; the definitions go in filename + ".defs"
+     * @param cachePages the most pages to keep in memory, at least 16
+     * @return the new dictionary, which must be closed to save it
+     * @throws IOException if the files cannot be created
+     */
+    public static DiskDictionary create(String filename, int cachePages) throws IOException {
+        DiskDictionary dictionary = new DiskDictionary(filename, cachePages, true);
+        Node leaf = dictionary.newNode(true);
+        dictionary.root = leaf.id;
+        dictionary.firstLeaf = leaf.id;
+        dictionary.height = 1;
+        dictionary.flush();
+        return dictionary;
+    }
+
+    /**
+     * Opens a dictionary saved by an earlier instance.
+     *
+     * @param filename the tree file; the definitions are read from filename + ".defs"
+     * @param cachePages the most pages to keep in memory, at least 16
+     * @return the dictionary, which must be closed to save any changes
+     * @throws IOException if the files cannot be read, or are not a dictionary of this version
+     */
+    public static DiskDictionary open(String filename, int cachePages) throws IOException {
+        DiskDictionary dictionary = new DiskDictionary(filename, cachePages, false);
+        try {
+            dictionary.readHeader();
+        } catch (IOException e) {
+            dictionary.pages.close();
+            dictionary.definitions.close();
+            throw e;
+        }
+        return dictionary;
+    }
+
+    /**
+     * Creates a dictionary from words that are already sorted, building the tree bottom up: the
+     * leaves are filled left to right and written out as they fill, and each level of internal
+     * pages is built from the one below it the same way. Pages are written once and never read
+     * back, so this is much faster than adding the words one by one, and the memory used is one
+     * page per level.
+     *
+     * @param filename the tree file; the definitions go in filename + ".defs"
+     * @param words the words and their definitions in strictly increasing order of their words,
+     *              for example BSTDictionary.iterator()
+     * @param cachePages the most pages to keep in memory afterward, at least 16
+     * @return the new dictionary, which must be closed to save any later changes
+     * @throws IOException if the files cannot be written
+     * @throws IllegalArgumentException if the words are out of order, repeated or too long
+     */
+    public static DiskDictionary bulkLoad(String filename, Iterator<WordNode> words, int cachePages) throws IOException {
+        DiskDictionary dictionary = new DiskDictionary(filename, cachePages, true);
+        try {
+            dictionary.load(words);
+            dictionary.flush();
+        } catch (IOException | RuntimeException e) {
+            dictionary.pages.close();
+            dictionary.definitions.close();
+            throw e;
+        }
+        return dictionary;
+    }
+
+    private void load(Iterator<WordNode> words) throws IOException {
+        //open.get(l) is the internal page being filled at height l + 2, and openFirst.get(l) its least word
+        ArrayList<Node> open = new ArrayList<>();
+        ArrayList<String> openFirst = new ArrayList<>();
+        Node leaf = new Node(pageCount++, true);
+        firstLeaf = leaf.id;
+        String previous = null;
+        while (words.hasNext()) {
+            WordNode node = words.next();
+            String word = node.getWord();
+            checkWord(word);
+            if (previous != null && previous.compareTo(word) >= 0) {
+                throw new IllegalArgumentException("words are not in increasing order: \"" + previous + "\" then \"" + word + "\"");
+            }
+            if (!leaf.keys.isEmpty() && leaf.bytes + entryBytes(word, true) > BULK_FILL) {
+                //the next leaf's page is taken now so this one can point to it
+                Node next = new Node(pageCount++, true);
+                leaf.next = next.id;
+                writeNode(leaf);
+                addToParent(open, openFirst, 0, leaf.keys.get(0), leaf.id);
+                leaf = next;
+            }
+            insertEntry(leaf, leaf.keys.size(), word, appendDefinition(node.getDefinition()));
+            size++;
+            previous = word;
+        }
+
+        writeNode(leaf);
+        height = 1;
+        root = leaf.id;
+        if (!open.isEmpty()) {
+            addToParent(open, openFirst, 0, leaf.keys.get(0), leaf.id);
+            for (int level = 0; level < open.size(); level++) {
+                Node node = open.get(level);
+                node.id = pageCount++;
+                writeNode(node);
+                if (level == open.size() - 1) {
+                    root = node.id;
+                    height = level + 2;
+                } else {
+                    addToParent(open, openFirst, level + 1, openFirst.get(level), node.id);
+                }
+            }
+        }
+    }
+
+    //adds a finished page, whose least word is first, to the page being filled at the level above it
+    private void addToParent(ArrayList<Node> open, ArrayList<String> openFirst, int level, String first, int child) throws IOException {
+        if (level == open.size()) {
+            Node node = new Node(-1, false);
+            node.children[0] = child;
+            open.add(node);
+            openFirst.add(first);
+            return;
+        }
+        Node node = open.get(level);
+        if (node.bytes + entryBytes(first, false) <= BULK_FILL) {
+            insertChild(node, node.keys.size(), first, child);
+            return;
+        }
+        //internal pages get their page number when they are finished
+        node.id = pageCount++;
+        writeNode(node);
+        addToParent(open, openFirst, level + 1, openFirst.get(level), node.id);
+        Node fresh = new Node(-1, false);
+        fresh.children[0] = child;
+        open.set(level, fresh);
+        openFirst.set(level, first);
+    }
+
+    /**
+     * @return the number of words in the dictionary
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return the number of pages on a path from the root to a leaf
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * @return the number of pages read from the file since the dictionary was opened
+     */
+    public long pageReads() {
+        return pageReads;
+    }
+
+    /**
+     * @return the number of pages written to the file since the dictionary was opened
+     */
+    public long pageWrites() {
+        return pageWrites;
+    }
+
+    /**
+     * @param word the word to look up
+     * @return the definition of word, or null if it is not in the dictionary
+     * @throws UncheckedIOException if a page or the definition cannot be read
+     */
+    public String getDefinition(String word) {
+        try {
+            Node leaf = findLeaf(word);
+            int i = search(leaf, word);
+            String definition = i >= 0 ? readDefinition(leaf.positions[i]) : null;
+            trimCache();
+            return definition;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param word the word to look up
+     * @return true if word is in the dictionary
+     * @throws UncheckedIOException if a page cannot be read
+     */
+    public boolean contains(String word) {
+        try {
+            boolean found = search(findLeaf(word), word) >= 0;
+            trimCache();
+            return found;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Adds a word and its definition. If the word is already in the dictionary, nothing changes.
+     *
+     * @param word The word to add, at most MAX_WORD_BYTES long in UTF-8
+     * @param definition The definition of the word
+     * @throws UncheckedIOException if a page cannot be read or the definition cannot be written
+     */
+    public void addWord(String word, String definition) {
+        checkWord(word);
+        try {
+            inserted = false;
+            Split split = insert(node(root), word, definition);
+            if (split != null) {
+                Node top = newNode(false);
+                top.children[0] = root;
+                insertChild(top, 0, split.key, split.right);
+                root = top.id;
+                height++;
+            }
+            if (inserted) {
+                size++;
+            }
+            trimCache();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Adds word under node, splitting pages that overflow on the way back up.
+     *
+     * @return how node was split, or null if it still fits in a page
+     */
+    private Split insert(Node node, String word, String definition) throws IOException {
+        if (node.leaf) {
+            int i = search(node, word);
+            if (i >= 0) {
+                return null;
+            }
+            insertEntry(node, -i - 1, word, appendDefinition(definition));
+            inserted = true;
+        } else {
+            int c = childIndex(node, word);
+            Split split = insert(node(node.children[c]), word, definition);
+            if (split == null) {
+                return null;
+            }
+            insertChild(node, c, split.key, split.right);
+        }
+        node.dirty = true;
+        return node.bytes > PAGE_SIZE ? split(node) : null;
+    }
+
+    /**
+     * Moves the upper half of node's entries, by encoded size, to a new page.
+     */
+    private Split split(Node node) {
+        Node right = newNode(node.leaf);
+        int n = node.keys.size();
+        int half = (node.bytes - NODE_HEADER) / 2;
+        int m = 0;
+        for (int bytes = 0; m < n - 1; m++) {
+            bytes += entryBytes(node.keys.get(m), node.leaf);
+            if (bytes > half) {
+                break;
+            }
+        }
+        m = Math.max(m, 1);
+
+        String separator;
+        if (node.leaf) {
+            //leaves keep every word, so the separator is a copy of the right page's least word
+            separator = node.keys.get(m);
+            right.keys.addAll(node.keys.subList(m, n));
+            right.positions = Arrays.copyOfRange(node.positions, m, Math.max(n, m + 8));
+            right.next = node.next;
+            node.next = right.id;
+        } else {
+            //internal pages move their middle key up instead
+            separator = node.keys.get(m);
+            right.keys.addAll(node.keys.subList(m + 1, n));
+            right.children = Arrays.copyOfRange(node.children, m + 1, Math.max(n + 1, m + 9));
+        }
+        node.keys.subList(m, n).clear();
+        recount(node);
+        recount(right);
+        return new Split(separator, right.id);
+    }
+
+    /**
+     * Replaces the definition of a word already in the dictionary. The old definition stays in
+     * the definitions file, unused.
+     *
+     * @return true if the word was found and changed, false if it is not in the dictionary
+     * @throws UncheckedIOException if a page cannot be read or the definition cannot be written
+     */
+    public boolean updateDefinition(String word, String definition) {
+        try {
+            Node leaf = findLeaf(word);
+            int i = search(leaf, word);
+            if (i >= 0) {
+                leaf.positions[i] = appendDefinition(definition);
+                leaf.dirty = true;
+            }
+            trimCache();
+            return i >= 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Removes a word from its leaf. Pages are not merged when they get small, and the space of
+     * the removed definition is not reused.
+     *
+     * @return true if the word was removed, false if it was not in the dictionary
+     * @throws UncheckedIOException if a page cannot be read
+     */
+    public boolean removeWord(String word) {
+        try {
+            Node leaf = findLeaf(word);
+            int i = search(leaf, word);
+            if (i >= 0) {
+                leaf.bytes -= entryBytes(word, true);
+                leaf.keys.remove(i);
+                System.arraycopy(leaf.positions, i + 1, leaf.positions, i, leaf.keys.size() - i);
+                leaf.dirty = true;
+                size--;
+            }
+            trimCache();
+            return i >= 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads every word and definition. This holds the whole dictionary on the heap, so for large
+     * dictionaries iterate instead.
+     *
+     * @return the words in alphabetical order, the same order as BSTDictionary.inOrder(), as
+     *         new WordNodes without children
+     */
+    public ArrayList<WordNode> inOrder() {
+        ArrayList<WordNode> traversal = new ArrayList<>();
+        iterator().forEachRemaining(traversal::add);
+        return traversal;
+    }
+
+    /**
+     * @return the words from lo to hi, both included, in alphabetical order
+     */
+    public ArrayList<WordNode> range(String lo, String hi) {
+        ArrayList<WordNode> found = new ArrayList<>();
+        Scan scan = new Scan(lo);
+        while (scan.hasNext() && scan.peekWord().compareTo(hi) <= 0) {
+            found.add(scan.next());
+        }
+        return found;
+    }
+
+    /**
+     * @return the words that start with prefix, in alphabetical order
+     */
+    public ArrayList<WordNode> prefix(String prefix) {
+        ArrayList<WordNode> found = new ArrayList<>();
+        Scan scan = new Scan(prefix);
+        while (scan.hasNext() && scan.peekWord().startsWith(prefix)) {
+            found.add(scan.next());
+        }
+        return found;
+    }
+
+    /**
+     * Walks the leaves from left to right, reading one page at a time. The dictionary must not be
+     * changed while the iterator is in use.
+     *
+     * @return an iterator over the words and definitions, in alphabetical order
+     */
+    @Override
+    public Iterator<WordNode> iterator() {
+        return new Scan(null);
+    }
+
+    /**
+     * An iterator over the leaf entries from a starting word on.
+     */
+    private final class Scan implements Iterator<WordNode> {
+        private Node leaf;
+        private int index;
+
+        //starts at the first word not less than from, or at the first word if from is null
+        Scan(String from) {
+            try {
+                if (from == null) {
+                    leaf = node(firstLeaf);
+                } else {
+                    leaf = findLeaf(from);
+                    int i = search(leaf, from);
+                    index = i >= 0 ? i : -i - 1;
+                }
+                skipFinishedLeaves();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void skipFinishedLeaves() throws IOException {
+            while (leaf != null && index == leaf.keys.size()) {
+                leaf = leaf.next == 0 ? null : node(leaf.next);
+                index = 0;
+            }
+            trimCache();
+        }
+
+        public boolean hasNext() {
+            return leaf != null;
+        }
+
+        String peekWord() {
+            return leaf.keys.get(index);
+        }
+
+        public WordNode next() {
+            if (leaf == null) {
+                throw new NoSuchElementException();
+            }
+            try {
+                WordNode node = new WordNode(leaf.keys.get(index), readDefinition(leaf.positions[index]));
+                index++;
+                skipFinishedLeaves();
+                return node;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Writes every changed page and the header, and forces both files to the disk.
+     *
+     * @throws IOException if the files cannot be written
+     */
+    public void flush() throws IOException {
+        for (Node node : cache.values()) {
+            if (node.dirty) {
+                writeNode(node);
+            }
+        }
+        pageBuffer.clear();
+        pageBuffer.putInt(MAGIC).putInt(VERSION).putInt(PAGE_SIZE).putInt(root).putInt(pageCount).putInt(height);
+        pageBuffer.putLong(size).putInt(firstLeaf);
+        pageBuffer.flip();
+        writeFully(pages, pageBuffer, 0);
+        pages.force(false);
+        definitions.force(false);
+    }
+
+    /**
+     * Saves the dictionary with flush() and closes its files.
+     *
+     * @throws IOException if the files cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            pages.close();
+            definitions.close();
+        }
+    }
+
+    private void readHeader() throws IOException {
+        pageBuffer.clear();
+        if (pages.size() < PAGE_SIZE) {
+            throw new IOException(filename + " is not a dictionary file");
+        }
+        readFully(pages, pageBuffer, 0);
+        pageBuffer.flip();
+        if (pageBuffer.getInt() != MAGIC) {
+            throw new IOException(filename + " is not a dictionary file");
+        }
+        int version = pageBuffer.getInt();
+        if (version != VERSION) {
+            throw new IOException(filename + " has dictionary version " + version + ", expected " + VERSION);
+        }
+        int pageSize = pageBuffer.getInt();
+        if (pageSize != PAGE_SIZE) {
+            throw new IOException(filename + " has " + pageSize + " byte pages, expected " + PAGE_SIZE);
+        }
+        root = pageBuffer.getInt();
+        pageCount = pageBuffer.getInt();
+        height = pageBuffer.getInt();
+        size = pageBuffer.getLong();
+        firstLeaf = pageBuffer.getInt();
+        definitionsEnd = definitions.size();
+    }
+
+    private Node findLeaf(String word) throws IOException {
+        Node node = node(root);
+        while (!node.leaf) {
+            node = node(node.children[childIndex(node, word)]);
+        }
+        return node;
+    }
+
+    //index of word among node's keys, or -(insertion point) - 1 if it is not there
+    private static int search(Node node, String word) {
+        return Collections.binarySearch(node.keys, word);
+    }
+
+    //index of the child of an internal node whose subtree would hold word
+    private static int childIndex(Node node, String word) {
+        int i = search(node, word);
+        return i >= 0 ? i + 1 : -i - 1;
+    }
+
+    private static void insertEntry(Node leaf, int i, String word, long position) {
+        int n = leaf.keys.size();
+        if (n == leaf.positions.length) {
+            leaf.positions = Arrays.copyOf(leaf.positions, n * 2);
+        }
+        System.arraycopy(leaf.positions, i, leaf.positions, i + 1, n - i);
+        leaf.positions[i] = position;
+        leaf.keys.add(i, word);
+        leaf.bytes += entryBytes(word, true);
+    }
+
+    //adds key at index i, with child to its right
+    private static void insertChild(Node node, int i, String key, int child) {
+        int n = node.keys.size();
+        if (n + 1 == node.children.length) {
+            node.children = Arrays.copyOf(node.children, node.children.length * 2);
+        }
+        System.arraycopy(node.children, i + 1, node.children, i + 2, n - i);
+        node.children[i + 1] = child;
+        node.keys.add(i, key);
+        node.bytes += entryBytes(key, false);
+    }
+
+    private static void recount(Node node) {
+        node.bytes = NODE_HEADER;
+        for (String key : node.keys) {
+            node.bytes += entryBytes(key, node.leaf);
+        }
+    }
+
+    private static int entryBytes(String key, boolean leaf) {
+        return 2 + key.getBytes(StandardCharsets.UTF_8).length + (leaf ? 8 : 4);
+    }
+
+    private static void checkWord(String word) {
+        int bytes = word.getBytes(StandardCharsets.UTF_8).length;
+        if (bytes > MAX_WORD_BYTES) {
+            throw new IllegalArgumentException("word is " + bytes + " bytes long, the most is " + MAX_WORD_BYTES);
+        }
+    }
+
+    //a new, empty page in the cache
+    private Node newNode(boolean leaf) {
+        Node node = new Node(pageCount++, leaf);
+        node.dirty = true;
+        cache.put(node.id, node);
+        return node;
+    }
+
+    private Node node(int id) throws IOException {
+        Node node = cache.get(id);
+        if (node == null) {
+            node = readNode(id);
+            cache.put(id, node);
+        }
+        return node;
+    }
+
+    /**
+     * Writes out and drops the least recently used pages until the cache is back to its size.
+     * Called at the end of each operation, never in the middle, so the pages an operation is
+     * working on stay in memory until it is done.
+     */
+    private void trimCache() throws IOException {
+        Iterator<Node> eldest = cache.values().iterator();
+        while (cache.size() > cachePages) {
+            Node node = eldest.next();
+            eldest.remove();
+            if (node.dirty) {
+                writeNode(node);
+            }
+        }
+    }
+
+    private Node readNode(int id) throws IOException {
+        pageBuffer.clear();
+        readFully(pages, pageBuffer, (long) id * PAGE_SIZE);
+        pageBuffer.flip();
+        pageReads++;
+        boolean leaf = pageBuffer.get() == 0;
+        Node node = new Node(id, leaf);
+        int n = pageBuffer.getShort() & 0xffff;
+        int link = pageBuffer.getInt();
+        if (leaf) {
+            node.next = link;
+            node.positions = new long[Math.max(n, 8)];
+        } else {
+            node.children = new int[Math.max(n + 1, 8)];
+            node.children[0] = link;
+        }
+        for (int i = 0; i < n; i++) {
+            int length = pageBuffer.getShort() & 0xffff;
+            pageBuffer.get(wordBuffer, 0, length);
+            node.keys.add(new String(wordBuffer, 0, length, StandardCharsets.UTF_8));
+            node.bytes += 2 + length + (leaf ? 8 : 4);
+            if (leaf) {
+                node.positions[i] = pageBuffer.getLong();
+            } else {
+                node.children[i + 1] = pageBuffer.getInt();
+            }
+        }
+        return node;
+    }
+
+    private void writeNode(Node node) throws IOException {
+        pageBuffer.clear();
+        pageBuffer.put((byte) (node.leaf ? 0 : 1));
+        pageBuffer.putShort((short) node.keys.size());
+        pageBuffer.putInt(node.leaf ? node.next : node.children[0]);
+        for (int i = 0; i < node.keys.size(); i++) {
+            byte[] utf8 = node.keys.get(i).getBytes(StandardCharsets.UTF_8);
+            pageBuffer.putShort((short) utf8.length);
+            pageBuffer.put(utf8);
+            if (node.leaf) {
+                pageBuffer.putLong(node.positions[i]);
+            } else {
+                pageBuffer.putInt(node.children[i + 1]);
+            }
+        }
+        //always write the whole page, so every page in the file is PAGE_SIZE long
+        pageBuffer.clear();
+        writeFully(pages, pageBuffer, (long) node.id * PAGE_SIZE);
+        node.dirty = false;
+        pageWrites++;
+    }
+
+    private long appendDefinition(String definition) throws IOException {
+        byte[] utf8 = definition == null ? new byte[0] : definition.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(4 + utf8.length);
+        buffer.putInt(definition == null ? -1 : utf8.length).put(utf8).flip();
+        long position = definitionsEnd;
+        writeFully(definitions, buffer, position);
+        definitionsEnd += buffer.capacity();
+        return position;
+    }
+
+    private String readDefinition(long position) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(4);
+        readFully(definitions, length, position);
+        int bytes = length.getInt(0);
+        if (bytes == -1) {
+            return null;
+        }
+        ByteBuffer utf8 = ByteBuffer.allocate(bytes);
+        readFully(definitions, utf8, position + 4);
+        return new String(utf8.array(), StandardCharsets.UTF_8);
+    }
+
+    private void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long start = position - buffer.position();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) {
+                throw new IOException(filename + " is truncated");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long start = position - buffer.position();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, start + buffer.position());
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package dictionary;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static dictionary.DictionaryChecks.check;
+import static dictionary.DictionaryChecks.checkSameWords;
+import static dictionary.DictionaryChecks.equal;
+import static dictionary.DictionaryChecks.randomWord;
+
+/**
+ * Behaviour tests for DiskDictionary, run on random words from a fixed seed:
+ * - bulk loaded from a BSTDictionary, or built with random adds, updates and removals mirrored
+ *   in a BSTDictionary, it gives the same answers for getDefinition, contains, range, prefix,
+ *   inOrder and its iterator, including for words whose definition is null;
+ * - it still does after it is closed and opened again.
+ *
+ * Usage: java dictionary.DiskDictionaryTest
+ */
+public class DiskDictionaryTest {
+
+    private static final long SEED = 11;
+    private static final int OPERATIONS = 20000;
+    private static final int QUERIES = 2000;
+    private static final int CACHE_PAGES = 16;
+
+    private DiskDictionaryTest() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Random random = new Random(SEED);
+
+        TreeMap<String, String> expected = new TreeMap<>();
+        BSTDictionary dictionary = new BSTDictionary(true);
+        for (int i = 0; i < OPERATIONS / 2; i++) {
+            String word = randomWord(random);
+            dictionary.addWord(word, "definition " + i);
+            expected.putIfAbsent(word, "definition " + i);
+        }
+
+        compareDisk(dictionary, expected, random);
+        DictionaryChecks.finish();
+    }
+
+    private static void compareDisk(BSTDictionary dictionary, TreeMap<String, String> expected, Random random)
+            throws IOException {
+        File loaded = File.createTempFile("disk-dictionary-test-", ".tree");
+        File added = File.createTempFile("disk-dictionary-test-", ".tree");
+        try {
+            try (DiskDictionary disk = DiskDictionary.bulkLoad(loaded.getPath(), dictionary.iterator(), CACHE_PAGES)) {
+                compareDisk("bulk loaded disk dictionary", disk, dictionary, random);
+            }
+
+            //words added in random order, some of them updated or removed again, split the pages
+            BSTDictionary mirror = new BSTDictionary(true);
+            try (DiskDictionary disk = DiskDictionary.create(added.getPath(), CACHE_PAGES)) {
+                List<String> words = new ArrayList<>(expected.keySet());
+                for (int i = 0; i < words.size() * 2; i++) {
+                    String word = words.get(random.nextInt(words.size()));
+                    int operation = random.nextInt(8);
+                    if (operation < 2) {
+                        check(disk.removeWord(word) == mirror.removeWord(word), "disk dictionary removeWord(" + word + ")");
+                    } else if (operation < 3) {
+                        String definition = random.nextBoolean() ? null : "updated " + i;
+                        check(disk.updateDefinition(word, definition) == mirror.updateDefinition(word, definition),
+                                "disk dictionary updateDefinition(" + word + ")");
+                    } else {
+                        disk.addWord(word, expected.get(word));
+                        mirror.addWord(word, expected.get(word));
+                    }
+                }
+                compareDisk("disk dictionary built word by word", disk, mirror, random);
+            }
+            try (DiskDictionary disk = DiskDictionary.open(added.getPath(), CACHE_PAGES)) {
+                compareDisk("reopened disk dictionary", disk, mirror, random);
+            }
+        } finally {
+            for (File file : new File[] {loaded, added}) {
+                file.delete();
+                new File(file.getPath() + ".defs").delete();
+            }
+        }
+    }
+
+    private static void compareDisk(String name, DiskDictionary disk, BSTDictionary dictionary, Random random) {
+        check(disk.size() == dictionary.size(), name + " has size " + disk.size() + ", not " + dictionary.size());
+        checkSameWords(name + " inOrder", disk.inOrder(), dictionary.inOrder());
+        List<WordNode> iterated = new ArrayList<>();
+        for (WordNode node : disk) {
+            iterated.add(node);
+        }
+        checkSameWords(name + " iterator", iterated, dictionary.inOrder());
+        for (int q = 0; q < QUERIES; q++) {
+            String word = randomWord(random);
+            String definition = dictionary.getDefinition(word);
+            check(equal(disk.getDefinition(word), definition), name + " getDefinition(" + word + ")");
+            WordNode ceiling = dictionary.ceiling(word);
+            boolean present = ceiling != null && ceiling.getWord().equals(word);
+            check(disk.contains(word) == present, name + " contains(" + word + ")");
+            String other = randomWord(random);
+            String lo = word.compareTo(other) <= 0 ? word : other;
+            String hi = word.compareTo(other) <= 0 ? other : word;
+            checkSameWords(name + " range(" + lo + ", " + hi + ")", disk.range(lo, hi), dictionary.range(lo, hi));
+            String prefix = word.substring(0, Math.min(word.length(), 2));
+            checkSameWords(name + " prefix(" + prefix + ")", disk.prefix(prefix), dictionary.prefix(prefix));
+        }
+    }
+}
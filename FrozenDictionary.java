@@ -0,0 +1,179 @@
+package dictionary;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * An immutable copy of a dictionary laid out in flat arrays for fast lookups, made by
+ * BSTDictionary.freeze().
+ *
+ * The words are stored in Eytzinger order: slot 1 holds the root of a complete binary search
+ * tree, and the children of slot i are slots 2i and 2i + 1, so the tree needs no pointers. The
+ * top levels, which every lookup goes through, sit together at the start of the arrays instead
+ * of in nodes scattered across the heap.
+ *
+ * The characters of all words are packed into one char array, and wordStart[i] is where the
+ * word in slot i begins. Definitions are kept in a String array in the same order, with
+ * repeated definitions sharing one String.
+ *
+ * A lookup always walks down the full height of the tree. At each level it picks child 2i or
+ * 2i + 1 arithmetically from the comparison instead of returning early on a match, so the loop
+ * has no hard-to-predict branch. At the bottom, the slot of the least word not less than the key
+ * is recovered from the bits of the final index.
+ */
+public class FrozenDictionary {
+
+    private final int n;
+    private final char[] chars;
+    private final int[] wordStart; // word in slot i is chars[wordStart[i] .. wordStart[i + 1])
+    private final String[] definitions;
+
+    /**
+     * @param root the root of the tree to copy, whose nodes are DictionaryNodes
+     */
+    FrozenDictionary(WordNode root) {
+        n = BSTDictionary.size(root);
+        String[] words = new String[n + 1];
+        String[] defs = new String[n + 1];
+        //place the sorted words by walking the implicit tree in in-order
+        int slot = firstInOrder();
+        HashMap<String, String> interned = new HashMap<>();
+        int totalChars = 0;
+        Iterator<WordNode> nodes = TreeTraversal.iterator(root, TreeTraversal.Order.IN_ORDER);
+        while (nodes.hasNext()) {
+            WordNode node = nodes.next();
+            words[slot] = node.getWord();
+            String def = node.getDefinition();
+            String shared = def == null ? null : interned.putIfAbsent(def, def);
+            defs[slot] = shared == null ? def : shared;
+            totalChars += node.getWord().length();
+            slot = nextInOrder(slot);
+        }
+
+        chars = new char[totalChars];
+        wordStart = new int[n + 2];
+        int pos = 0;
+        for (int i = 1; i <= n; i++) {
+            wordStart[i] = pos;
+            words[i].getChars(0, words[i].length(), chars, pos);
+            pos += words[i].length();
+        }
+        wordStart[n + 1] = pos;
+        definitions = defs;
+    }
+
+    //slot of the first word in alphabetical order, the leftmost slot of the tree
+    private int firstInOrder() {
+        int i = 1;
+        while (2 * i <= n) {
+            i = 2 * i;
+        }
+        return i;
+    }
+
+    //slot of the word after slot i in alphabetical order, or 0 after the last
+    private int nextInOrder(int i) {
+        if (2 * i + 1 <= n) {
+            i = 2 * i + 1;
+            while (2 * i <= n) {
+                i = 2 * i;
+            }
+            return i;
+        }
+        //go up past every ancestor this subtree is the right child of, then one more
+        while ((i & 1) == 1) {
+            i >>= 1;
+        }
+        return i >> 1;
+    }
+
+    /**
+     * @return the slot of the least word not less than key, or 0 if every word is less
+     */
+    private int lowerBound(String key) {
+        int i = 1;
+        while (i <= n) {
+            i = 2 * i + (compare(key, i) > 0 ? 1 : 0);
+        }
+        //the answer is the last slot where the walk went left: drop the trailing right turns and that left turn
+        return i >> (Integer.numberOfTrailingZeros(~i) + 1);
+    }
+
+    //same result as key.compareTo(word in slot i)
+    private int compare(String key, int i) {
+        int start = wordStart[i];
+        int length = wordStart[i + 1] - start;
+        int common = Math.min(key.length(), length);
+        for (int j = 0; j < common; j++) {
+            int diff = key.charAt(j) - chars[start + j];
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return key.length() - length;
+    }
+
+    private String word(int i) {
+        return new String(chars, wordStart[i], wordStart[i + 1] - wordStart[i]);
+    }
+
+    /**
+     * @param word the word to look up
+     * @return the definition of word, or null if it is not in the dictionary
+     */
+    public String getDefinition(String word) {
+        int i = lowerBound(word);
+        return i != 0 && compare(word, i) == 0 ? definitions[i] : null;
+    }
+
+    /**
+     * @param word the word to look up
+     * @return true if word is in the dictionary
+     */
+    public boolean contains(String word) {
+        int i = lowerBound(word);
+        return i != 0 && compare(word, i) == 0;
+    }
+
+    /**
+     * @return the least word greater than or equal to word, or null if there is none
+     */
+    public String ceiling(String word) {
+        int i = lowerBound(word);
+        return i == 0 ? null : word(i);
+    }
+
+    /**
+     * @return the number of words in the dictionary
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * The frozen dictionary has no nodes, so the traversals return new WordNodes holding the
+     * words and definitions, without children.
+     *
+     * @return the words in alphabetical order, the same order as BSTDictionary.inOrder()
+     */
+    public ArrayList<WordNode> inOrder() {
+        ArrayList<WordNode> traversal = new ArrayList<>(n);
+        for (int i = n == 0 ? 0 : firstInOrder(); i != 0; i = nextInOrder(i)) {
+            traversal.add(new WordNode(word(i), definitions[i]));
+        }
+        return traversal;
+    }
+
+    /**
+     * @return the words in level-order of the frozen tree, which is complete, so this is simply
+     *         the order of the slots
+     */
+    public ArrayList<WordNode> levelOrder() {
+        ArrayList<WordNode> traversal = new ArrayList<>(n);
+        for (int i = 1; i <= n; i++) {
+            traversal.add(new WordNode(word(i), definitions[i]));
+        }
+        return traversal;
+    }
+}
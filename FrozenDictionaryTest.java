@@ -0,0 +1,120 @@
+package dictionary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static dictionary.DictionaryChecks.check;
+
+/**
+ * Behaviour tests for FrozenDictionary, made by BSTDictionary.freeze():
+ * - getDefinition, contains and ceiling give the same answers as a TreeMap, for dictionaries of
+ *   every size up to a few full levels and for a large one, on words both in and out of the
+ *   dictionary, including words that are prefixes of each other and null definitions;
+ * - inOrder holds the words in alphabetical order, and levelOrder holds the same words laid out
+ *   as a complete binary search tree;
+ * - changing the dictionary after freezing it does not change the frozen copy.
+ *
+ * Usage: java dictionary.FrozenDictionaryTest
+ */
+public class FrozenDictionaryTest {
+
+    private static final long SEED = 11;
+    private static final int SMALL_SIZES = 40;
+    private static final int LARGE_SIZE = 10000;
+    private static final int QUERIES = 2000;
+
+    private FrozenDictionaryTest() {
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(SEED);
+        for (int size = 0; size <= SMALL_SIZES; size++) {
+            compare(size + " words", size, random);
+        }
+        compare(LARGE_SIZE + " words", LARGE_SIZE, random);
+        DictionaryChecks.finish();
+    }
+
+    private static void compare(String name, int size, Random random) {
+        BSTDictionary dictionary = new BSTDictionary(true);
+        TreeMap<String, String> expected = new TreeMap<>();
+        while (expected.size() < size) {
+            String word = DictionaryChecks.randomWord(random);
+            //a few null definitions, and many repeated ones to be shared
+            String definition = random.nextInt(10) == 0 ? null : "definition " + random.nextInt(size);
+            if (!expected.containsKey(word)) {
+                dictionary.addWord(word, definition);
+                expected.put(word, definition);
+            }
+        }
+        FrozenDictionary frozen = dictionary.freeze();
+
+        //the source dictionary changing afterwards must not show through
+        for (int i = 0; i < size / 2; i++) {
+            String word = DictionaryChecks.randomWord(random);
+            if (random.nextBoolean()) {
+                dictionary.addWord(word, "added later");
+            } else {
+                dictionary.removeWord(word);
+            }
+        }
+
+        check(frozen.size() == expected.size(), name + " has size " + frozen.size() + ", not " + expected.size());
+        DictionaryChecks.checkEntries(name + " inOrder", frozen.inOrder(), expected);
+        checkLevelOrder(name, frozen.levelOrder(), expected);
+
+        List<String> words = new ArrayList<>(expected.keySet());
+        for (int q = 0; q < QUERIES; q++) {
+            String word;
+            int kind = random.nextInt(3);
+            if (kind == 0 && !words.isEmpty()) {
+                word = words.get(random.nextInt(words.size()));
+            } else if (kind == 1 && !words.isEmpty()) {
+                //a word with a letter more or less than one in the dictionary
+                String in = words.get(random.nextInt(words.size()));
+                word = random.nextBoolean() ? in.substring(0, in.length() - 1) : in + DictionaryChecks.randomWord(random);
+            } else {
+                word = DictionaryChecks.randomWord(random);
+            }
+            check(DictionaryChecks.equal(frozen.getDefinition(word), expected.get(word)),
+                    name + " getDefinition(" + word + ") returned " + frozen.getDefinition(word));
+            check(frozen.contains(word) == expected.containsKey(word), name + " contains(" + word + ")");
+            check(DictionaryChecks.equal(frozen.ceiling(word), expected.ceilingKey(word)),
+                    name + " ceiling(" + word + ") returned " + frozen.ceiling(word));
+        }
+    }
+
+    /**
+     * Checks that the level-order words are the expected words placed as a complete binary
+     * search tree, where the children of position i (from 1) are positions 2i and 2i + 1.
+     */
+    private static void checkLevelOrder(String name, List<WordNode> levels, TreeMap<String, String> expected) {
+        if (!check(levels.size() == expected.size(), name + " levelOrder returned " + levels.size() + " words")) {
+            return;
+        }
+        TreeMap<String, String> seen = new TreeMap<>();
+        for (WordNode node : levels) {
+            seen.put(node.getWord(), node.getDefinition());
+        }
+        List<WordNode> sorted = new ArrayList<>();
+        for (Map.Entry<String, String> entry : seen.entrySet()) {
+            sorted.add(new WordNode(entry.getKey(), entry.getValue()));
+        }
+        DictionaryChecks.checkEntries(name + " levelOrder words", sorted, expected);
+        checkSlot(name, levels, 1, null, null);
+    }
+
+    private static void checkSlot(String name, List<WordNode> levels, int i, String lo, String hi) {
+        if (i > levels.size()) {
+            return;
+        }
+        String word = levels.get(i - 1).getWord();
+        check((lo == null || lo.compareTo(word) < 0) && (hi == null || word.compareTo(hi) < 0),
+                name + " levelOrder has " + word + " out of order at position " + i);
+        checkSlot(name, levels, 2 * i, lo, word);
+        checkSlot(name, levels, 2 * i + 1, word, hi);
+    }
+}
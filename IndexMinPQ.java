@@ -0,0 +1,162 @@
+package rumaps;
+
+import java.util.NoSuchElementException;
+
+/**
+ * An indexed min-priority queue of dense integer ids (0 to capacity - 1) with double keys.
+ * 
+ * The queue is a binary heap of ids, plus an inverse array that records where each id sits
+ * in the heap, so contains() and decreaseKey() do not need to search the heap.
+ * 
+ * Ids with equal keys come off the queue in the order they were inserted, and lowering a key
+ * does not change an id's place among its ties. That is the order the original fringe scan in
+ * RUMaps.fastestPath used, which took the earliest added of the cheapest fringe entries, so a
+ * search on this queue breaks ties between equally cheap paths the same way.
+ * 
+ * insert, decreaseKey and delMin take O(log n); contains, isEmpty and minKey take O(1).
+ */
+public class IndexMinPQ {
+
+    private int n;           // number of ids on the heap
+    private int[] heap;      // heap[1..n] holds ids
+    private int[] position;  // position[id] is the heap slot of id, or -1 if id is not queued
+    private double[] keys;   // keys[id] is the priority of id
+    private long[] order;    // order[id] is the insertion number of id, which breaks ties between equal keys
+    private long inserted;   // insertions so far
+
+    /**
+     * Creates an empty queue for ids 0 to capacity - 1.
+     * 
+     * @param capacity the number of distinct ids the queue can hold
+     */
+    public IndexMinPQ(int capacity) {
+        heap = new int[capacity + 1];
+        position = new int[capacity];
+        keys = new double[capacity];
+        order = new long[capacity];
+        java.util.Arrays.fill(position, -1);
+    }
+
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    public int size() {
+        return n;
+    }
+
+    public int capacity() {
+        return position.length;
+    }
+
+    public boolean contains(int id) {
+        return position[id] != -1;
+    }
+
+    /**
+     * Adds an id with the given key. The id must not already be on the queue.
+     */
+    public void insert(int id, double key) {
+        if (contains(id)) {
+            throw new IllegalArgumentException("id " + id + " is already on the queue");
+        }
+        n++;
+        heap[n] = id;
+        position[id] = n;
+        keys[id] = key;
+        order[id] = inserted++;
+        swim(n);
+    }
+
+    /**
+     * Lowers the key of an id that is already on the queue. The id keeps its insertion number.
+     */
+    public void decreaseKey(int id, double key) {
+        if (!contains(id)) {
+            throw new NoSuchElementException("id " + id + " is not on the queue");
+        }
+        keys[id] = key;
+        swim(position[id]);
+    }
+
+    /**
+     * Inserts the id, or lowers its key if it is already queued with a larger key.
+     */
+    public void insertOrDecrease(int id, double key) {
+        if (!contains(id)) {
+            insert(id, key);
+        } else if (key < keys[id]) {
+            decreaseKey(id, key);
+        }
+    }
+
+    /**
+     * @return the key of the smallest id on the queue
+     */
+    public double minKey() {
+        if (n == 0) {
+            throw new NoSuchElementException("queue is empty");
+        }
+        return keys[heap[1]];
+    }
+
+    /**
+     * Removes the id with the smallest key and returns it.
+     */
+    public int delMin() {
+        if (n == 0) {
+            throw new NoSuchElementException("queue is empty");
+        }
+        int min = heap[1];
+        exchange(1, n);
+        n--;
+        sink(1);
+        position[min] = -1;
+        return min;
+    }
+
+    /**
+     * Empties the queue in O(size) so the same arrays can be reused for the next search.
+     */
+    public void clear() {
+        for (int i = 1; i <= n; i++) {
+            position[heap[i]] = -1;
+        }
+        n = 0;
+    }
+
+    private void swim(int k) {
+        while (k > 1 && greater(k / 2, k)) {
+            exchange(k, k / 2);
+            k = k / 2;
+        }
+    }
+
+    private void sink(int k) {
+        while (2 * k <= n) {
+            int j = 2 * k;
+            if (j < n && greater(j, j + 1)) {
+                j++;
+            }
+            if (!greater(k, j)) {
+                break;
+            }
+            exchange(k, j);
+            k = j;
+        }
+    }
+
+    private boolean greater(int i, int j) {
+        double a = keys[heap[i]];
+        double b = keys[heap[j]];
+        return a > b || (a == b && order[heap[i]] > order[heap[j]]);
+    }
+
+    private void exchange(int i, int j) {
+        int swap = heap[i];
+        heap[i] = heap[j];
+        heap[j] = swap;
+        position[heap[i]] = i;
+        position[heap[j]] = j;
+    }
+}
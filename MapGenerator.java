@@ -0,0 +1,189 @@
+package rumaps;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Writes synthetic street files in the format read by RUMaps.initializeBlocks, for testing and
+ * benchmarking on maps much larger than the campus:
+ * - grid: a square city of horizontal and vertical streets, every block one grid cell long,
+ *   with some blocks bent by a middle point;
+ * - random geometric: intersections scattered uniformly at random, with a block between every
+ *   pair that is closer than a fixed radius (each intersection gets about five blocks).
+ *
+ * The same arguments and seed always produce the same file.
+ *
+ * Usage: java rumaps.MapGenerator grid|geometric intersections seed filename
+ */
+public class MapGenerator {
+
+    private static final int SPACING = 10;          // distance between neighboring grid intersections
+    private static final double AVERAGE_DEGREE = 5; // expected blocks per intersection in the geometric layout
+    private static final double[] ROAD_SIZES = {1.0, 1.5, 2.0, 3.0};
+
+    private MapGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            System.out.println("Usage: java rumaps.MapGenerator grid|geometric intersections seed filename");
+            return;
+        }
+        int intersections = Integer.parseInt(args[1]);
+        long seed = Long.parseLong(args[2]);
+        if (args[0].equals("grid")) {
+            writeGrid(args[3], intersections, seed);
+        } else if (args[0].equals("geometric")) {
+            writeRandomGeometric(args[3], intersections, seed);
+        } else {
+            System.out.println("Unknown layout " + args[0]);
+        }
+    }
+
+    /**
+     * Writes a square grid city with about the given number of intersections.
+     *
+     * @param filename the file to write
+     * @param intersections the number of intersections wanted; rounded up to a square
+     * @param seed the random seed for bends and road sizes
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeGrid(String filename, int intersections, long seed) throws IOException {
+        Random random = new Random(seed);
+        int side = (int) Math.ceil(Math.sqrt(intersections));
+
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(filename), 1 << 16))) {
+            out.println(side * side + " " + 2 * side);
+            //horizontal streets, one per row
+            for (int row = 0; row < side; row++) {
+                out.println("Street " + row);
+                out.println(side - 1);
+                for (int col = 0; col + 1 < side; col++) {
+                    int x = col * SPACING;
+                    int y = row * SPACING;
+                    if (random.nextInt(4) == 0) {
+                        int bend = random.nextInt(SPACING / 2 + 1) - SPACING / 4;
+                        writeBlock(out, col + 1, random, x, y, x + SPACING / 2, y + bend, x + SPACING, y);
+                    } else {
+                        writeBlock(out, col + 1, random, x, y, x + SPACING, y);
+                    }
+                }
+            }
+            //vertical streets, one per column
+            for (int col = 0; col < side; col++) {
+                out.println("Avenue " + col);
+                out.println(side - 1);
+                for (int row = 0; row + 1 < side; row++) {
+                    int x = col * SPACING;
+                    int y = row * SPACING;
+                    writeBlock(out, row + 1, random, x, y, x, y + SPACING);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a random geometric city: the intersections are distinct random points in a square
+     * sized to hold one per SPACING x SPACING cell, and every pair within the connection radius
+     * is joined by a straight block. The map need not be connected.
+     *
+     * @param filename the file to write
+     * @param intersections the number of intersections
+     * @param seed the random seed for positions and road sizes
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeRandomGeometric(String filename, int intersections, long seed) throws IOException {
+        Random random = new Random(seed);
+        int extent = (int) Math.ceil(Math.sqrt(intersections)) * SPACING;
+        //a disc of this radius holds AVERAGE_DEGREE points on average
+        double radius = SPACING * Math.sqrt(AVERAGE_DEGREE / Math.PI);
+
+        int[] x = new int[intersections];
+        int[] y = new int[intersections];
+        HashSet<Long> used = new HashSet<>();
+        for (int v = 0; v < intersections; v++) {
+            do {
+                x[v] = random.nextInt(extent);
+                y[v] = random.nextInt(extent);
+            } while (!used.add(CoordinateIndex.pack(x[v], y[v])));
+        }
+
+        //bucket the points into radius-sized cells, so each point only checks the 3x3 cells around it
+        int cellSize = (int) Math.ceil(radius);
+        int cells = extent / cellSize + 1;
+        int[] cellStart = new int[cells * cells + 1];
+        for (int v = 0; v < intersections; v++) {
+            cellStart[cell(x[v], y[v], cellSize, cells) + 1]++;
+        }
+        for (int c = 0; c < cells * cells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] byCell = new int[intersections];
+        int[] next = cellStart.clone();
+        for (int v = 0; v < intersections; v++) {
+            byCell[next[cell(x[v], y[v], cellSize, cells)]++] = v;
+        }
+
+        //one street per intersection, holding its blocks to higher-numbered neighbors
+        List<List<Integer>> streets = new ArrayList<>();
+        for (int v = 0; v < intersections; v++) {
+            List<Integer> neighbors = new ArrayList<>();
+            int cx = x[v] / cellSize;
+            int cy = y[v] / cellSize;
+            for (int i = Math.max(cx - 1, 0); i <= Math.min(cx + 1, cells - 1); i++) {
+                for (int j = Math.max(cy - 1, 0); j <= Math.min(cy + 1, cells - 1); j++) {
+                    int c = i * cells + j;
+                    for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+                        int w = byCell[k];
+                        double dx = x[w] - x[v];
+                        double dy = y[w] - y[v];
+                        if (w > v && dx * dx + dy * dy <= radius * radius) {
+                            neighbors.add(w);
+                        }
+                    }
+                }
+            }
+            streets.add(neighbors);
+        }
+
+        int streetCount = 0;
+        for (List<Integer> neighbors : streets) {
+            if (!neighbors.isEmpty()) {
+                streetCount++;
+            }
+        }
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(filename), 1 << 16))) {
+            out.println(intersections + " " + streetCount);
+            for (int v = 0; v < intersections; v++) {
+                List<Integer> neighbors = streets.get(v);
+                if (neighbors.isEmpty()) {
+                    continue;
+                }
+                out.println("Road " + v);
+                out.println(neighbors.size());
+                for (int i = 0; i < neighbors.size(); i++) {
+                    int w = neighbors.get(i);
+                    writeBlock(out, i + 1, random, x[v], y[v], x[w], y[w]);
+                }
+            }
+        }
+    }
+
+    private static int cell(int x, int y, int cellSize, int cells) {
+        return (x / cellSize) * cells + y / cellSize;
+    }
+
+    //writes "blockNumber numPoints roadSize" followed by one "x y" line per point
+    private static void writeBlock(PrintWriter out, int blockNumber, Random random, int... points) {
+        out.println(blockNumber + " " + points.length / 2 + " " + ROAD_SIZES[random.nextInt(ROAD_SIZES.length)]);
+        for (int i = 0; i < points.length; i += 2) {
+            out.println(points[i] + " " + points[i + 1]);
+        }
+    }
+}
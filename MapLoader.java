@@ -0,0 +1,273 @@
+package rumaps;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.InputMismatchException;
+
+/**
+ * Reads the street/block/point map format straight out of a byte buffer (normally a
+ * memory-mapped file), as a faster replacement for token-by-token StdIn parsing.
+ *
+ * Integers and doubles are parsed in place from the bytes, so no String is created per token;
+ * the only Strings allocated are the street names themselves. readInt, readDouble and readLine
+ * behave like their StdIn counterparts, so readBlocks builds exactly the blocks that
+ * RUMaps.initializeBlocks would.
+ */
+public class MapLoader {
+
+    // powers of ten that are exact as doubles, for the fast path of readDouble
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final ByteBuffer buffer;
+    private int position;
+    private final int limit;
+    private byte[] lineBytes = new byte[64];
+
+    /**
+     * @param buffer the map file contents, from its position to its limit
+     */
+    public MapLoader(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.position = buffer.position();
+        this.limit = buffer.limit();
+    }
+
+    /**
+     * Memory-maps a map file for reading.
+     *
+     * @param filename the name of the file containing the street information
+     * @return a loader positioned at the start of the file
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public static MapLoader open(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            //the mapping stays valid after the channel is closed
+            return new MapLoader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Reads the blocks of the given number of streets, like RUMaps.initializeBlocks.
+     *
+     * @param numStreets the number of streets
+     * @return an ArrayList of blocks
+     */
+    public ArrayList<Block> readBlocks(int numStreets) {
+        ArrayList<Block> blocks = new ArrayList<>();
+
+        for (int i = 0; i < numStreets; i++) {
+            String streetName = readLine();
+            if (streetName.isEmpty()) {
+                streetName = readLine();
+            }
+
+            int numBlocks = readInt(); //num blocks on this street
+
+            for (int j = 0; j < numBlocks; j++) {
+                int blockNumber = readInt();
+                int numPoints = readInt();
+                double roadSize = readDouble();
+
+                Block block = new Block();
+                block.setStreetName(streetName);
+                block.setBlockNumber(blockNumber);
+                block.setRoadSize(roadSize);
+
+                for (int k = 0; k < numPoints; k++) {
+                    int x = readInt();
+                    int y = readInt();
+                    Coordinate coord = new Coordinate(x, y);
+                    if (k == 0) {
+                        block.startPoint(coord);
+                    } else {
+                        block.nextPoint(coord);
+                    }
+                }
+
+                blocks.add(block);
+            }
+        }
+
+        return blocks;
+    }
+
+    /**
+     * Reads the next whitespace-separated token as an int.
+     */
+    public int readInt() {
+        skipWhitespace();
+        int start = position;
+        boolean negative = false;
+        if (position < limit && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+            negative = buffer.get(position) == '-';
+            position++;
+        }
+
+        //accumulate negatively so Integer.MIN_VALUE parses
+        long value = 0;
+        int digits = 0;
+        while (position < limit && isDigit(buffer.get(position))) {
+            value = value * 10 - (buffer.get(position) - '0');
+            if (value < Integer.MIN_VALUE) {
+                throw mismatch(start);
+            }
+            position++;
+            digits++;
+        }
+        if (digits == 0 || !atTokenEnd()) {
+            throw mismatch(start);
+        }
+        if (!negative && value == Integer.MIN_VALUE) {
+            throw mismatch(start);
+        }
+        return (int) (negative ? value : -value);
+    }
+
+    /**
+     * Reads the next whitespace-separated token as a double.
+     */
+    public double readDouble() {
+        skipWhitespace();
+        int start = position;
+        boolean negative = false;
+        if (position < limit && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+            negative = buffer.get(position) == '-';
+            position++;
+        }
+
+        long mantissa = 0;
+        int significant = 0; // digits collected into the mantissa, not counting leading zeros
+        int scale = 0;       // power of ten to apply to the mantissa
+        int digits = 0;
+        boolean exact = true; // false if a nonzero digit did not fit in the mantissa
+        boolean fraction = false;
+        while (position < limit) {
+            byte b = buffer.get(position);
+            if (b == '.' && !fraction) {
+                fraction = true;
+                position++;
+                continue;
+            }
+            if (!isDigit(b)) {
+                break;
+            }
+            if (significant < 18) {
+                mantissa = mantissa * 10 + (b - '0');
+                if (mantissa != 0) {
+                    significant++;
+                }
+                if (fraction) {
+                    scale--;
+                }
+            } else {
+                exact &= b == '0';
+                if (!fraction) {
+                    scale++;
+                }
+            }
+            position++;
+            digits++;
+        }
+        if (digits == 0) {
+            throw mismatch(start);
+        }
+        if (position < limit && (buffer.get(position) == 'e' || buffer.get(position) == 'E')) {
+            position++;
+            int exponentSign = 1;
+            if (position < limit && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+                exponentSign = buffer.get(position) == '-' ? -1 : 1;
+                position++;
+            }
+            int exponent = 0;
+            int exponentDigits = 0;
+            while (position < limit && isDigit(buffer.get(position))) {
+                exponent = Math.min(exponent * 10 + (buffer.get(position) - '0'), 100000);
+                position++;
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) {
+                throw mismatch(start);
+            }
+            scale += exponentSign * exponent;
+        }
+        if (!atTokenEnd()) {
+            throw mismatch(start);
+        }
+
+        //a mantissa below 2^53 and a power of ten up to 10^22 are both exact doubles, so one
+        //multiplication or division rounds correctly; anything else goes to the JDK parser
+        if (exact && mantissa < (1L << 53) && Math.abs(scale) < POWERS_OF_TEN.length) {
+            double value = scale < 0 ? mantissa / POWERS_OF_TEN[-scale] : mantissa * POWERS_OF_TEN[scale];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(token(start, position));
+    }
+
+    /**
+     * Reads the rest of the current line, without its line terminator.
+     *
+     * @return the line, or null at the end of the input
+     */
+    public String readLine() {
+        if (position >= limit) {
+            return null;
+        }
+        int length = 0;
+        while (position < limit && buffer.get(position) != '\n') {
+            if (length == lineBytes.length) {
+                lineBytes = Arrays.copyOf(lineBytes, length * 2);
+            }
+            lineBytes[length++] = buffer.get(position++);
+        }
+        if (position < limit) {
+            position++; //skip the '\n'
+        }
+        if (length > 0 && lineBytes[length - 1] == '\r') {
+            length--;
+        }
+        return new String(lineBytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void skipWhitespace() {
+        while (position < limit && isWhitespace(buffer.get(position))) {
+            position++;
+        }
+    }
+
+    private boolean atTokenEnd() {
+        return position == limit || isWhitespace(buffer.get(position));
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f';
+    }
+
+    private String token(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    private InputMismatchException mismatch(int start) {
+        int end = start;
+        while (end < limit && !isWhitespace(buffer.get(end))) {
+            end++;
+        }
+        return new InputMismatchException("unexpected token '" + token(start, end) + "' at byte " + start);
+    }
+}
@@ -0,0 +1,230 @@
+package rumaps;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A compact binary file holding a fully built Network: intersection coordinates, and every
+ * directed block with its points, length, traffic factor and traffic. Loading a snapshot skips
+ * text parsing, intersection lookup and length computation entirely.
+ *
+ * Layout (big-endian):
+ *   header:  int magic "RUMS", int version, int payload length, int CRC32 of the payload
+ *   payload: int capacity (the Network size), int intersection count, then x, y per intersection;
+ *            int street name count, then each name as a short byte length and UTF-8 bytes;
+ *            then for every intersection in order, int block count followed by its blocks as
+ *            int street name index, int block number, double road size, int other endpoint,
+ *            int point count, x, y per point, double length, double traffic factor, double traffic
+ *
+ * Each intersection's blocks are written in the order of its adjacency list, head first. On
+ * reading they are added through Network.addEdge last to first, which rebuilds the same order
+ * because addEdge puts each new block at the head of the list, the way RUMaps builds it. read()
+ * checks that, and that addIntersection put every intersection at the index it was written
+ * from, and fails rather than hand back a network whose lists are in a different order.
+ */
+public class NetworkSnapshot {
+
+    private static final int MAGIC = 0x52554D53; // "RUMS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    private NetworkSnapshot() {
+    }
+
+    /**
+     * Writes the network to a snapshot file.
+     *
+     * @param network the network to save; its blocks must have lengths and traffic set
+     * @param filename the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Network network, String filename) throws IOException {
+        Intersection[] intersections = network.getIntersections();
+        Block[] adjacencyList = network.getAdjacencyList();
+        int count = 0;
+        while (count < intersections.length && intersections[count] != null) {
+            count++;
+        }
+        CoordinateIndex ids = new CoordinateIndex(count);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(intersections.length);
+        out.writeInt(count);
+        for (int v = 0; v < count; v++) {
+            Coordinate c = intersections[v].getCoordinate();
+            ids.put(c.getX(), c.getY(), v);
+            out.writeInt(c.getX());
+            out.writeInt(c.getY());
+        }
+
+        //street names repeat on every block, so they are stored once and referenced by index
+        HashMap<String, Integer> nameIndex = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        for (int v = 0; v < count; v++) {
+            for (Block ptr = adjacencyList[v]; ptr != null; ptr = ptr.getNext()) {
+                if (!nameIndex.containsKey(ptr.getStreetName())) {
+                    nameIndex.put(ptr.getStreetName(), names.size());
+                    names.add(ptr.getStreetName());
+                }
+            }
+        }
+        out.writeInt(names.size());
+        for (String name : names) {
+            byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+            out.writeShort(utf8.length);
+            out.write(utf8);
+        }
+
+        for (int v = 0; v < count; v++) {
+            int degree = 0;
+            for (Block ptr = adjacencyList[v]; ptr != null; ptr = ptr.getNext()) {
+                degree++;
+            }
+            out.writeInt(degree);
+            for (Block ptr = adjacencyList[v]; ptr != null; ptr = ptr.getNext()) {
+                Intersection other = ptr.getLastEndpoint();
+                if (!ptr.getFirstEndpoint().equals(intersections[v])) {
+                    other = ptr.getFirstEndpoint();
+                }
+                List<Coordinate> points = ptr.getCoordinatePoints();
+
+                out.writeInt(nameIndex.get(ptr.getStreetName()));
+                out.writeInt(ptr.getBlockNumber());
+                out.writeDouble(ptr.getRoadSize());
+                out.writeInt(ids.get(other.getCoordinate().getX(), other.getCoordinate().getY()));
+                out.writeInt(points.size());
+                for (Coordinate c : points) {
+                    out.writeInt(c.getX());
+                    out.writeInt(c.getY());
+                }
+                out.writeDouble(ptr.getLength());
+                out.writeDouble(ptr.getTrafficFactor());
+                out.writeDouble(ptr.getTraffic());
+            }
+        }
+        out.flush();
+
+        byte[] payload = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        try (DataOutputStream file = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))) {
+            file.writeInt(MAGIC);
+            file.writeInt(VERSION);
+            file.writeInt(payload.length);
+            file.writeInt((int) crc.getValue());
+            file.write(payload);
+        }
+    }
+
+    /**
+     * Memory-maps a snapshot file and rebuilds the network it holds.
+     *
+     * @param filename the snapshot file
+     * @param mapPanel the map panel to give the network
+     * @return the rebuilt network
+     * @throws IOException if the file cannot be read, or is not a valid snapshot of this version
+     */
+    public static Network read(String filename, MapPanel mapPanel) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException(filename + " is not a network snapshot");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException(filename + " has snapshot version " + version + ", expected " + VERSION);
+        }
+        int payloadLength = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (buffer.remaining() != payloadLength) {
+            throw new IOException(filename + " is truncated");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException(filename + " failed its checksum");
+        }
+
+        Network network = new Network(buffer.getInt(), mapPanel);
+        int count = buffer.getInt();
+        Intersection[] intersections = new Intersection[count];
+        for (int v = 0; v < count; v++) {
+            intersections[v] = new Intersection(new Coordinate(buffer.getInt(), buffer.getInt()));
+            network.addIntersection(intersections[v]);
+        }
+
+        String[] names = new String[buffer.getInt()];
+        byte[] utf8 = new byte[64];
+        for (int i = 0; i < names.length; i++) {
+            int length = buffer.getShort() & 0xffff;
+            if (utf8.length < length) {
+                utf8 = new byte[length];
+            }
+            buffer.get(utf8, 0, length);
+            names[i] = new String(utf8, 0, length, StandardCharsets.UTF_8);
+        }
+
+        Intersection[] added = network.getIntersections();
+        for (int v = 0; v < count; v++) {
+            if (added[v] != intersections[v]) {
+                throw new IllegalStateException("Network.addIntersection did not put intersection " + v + " at index " + v);
+            }
+        }
+
+        Block[] adjacencyList = network.getAdjacencyList();
+        Block[] list = new Block[16];
+        for (int v = 0; v < count; v++) {
+            int degree = buffer.getInt();
+            if (list.length < degree) {
+                list = new Block[degree];
+            }
+            for (int i = 0; i < degree; i++) {
+                Block block = new Block();
+                block.setStreetName(names[buffer.getInt()]);
+                block.setBlockNumber(buffer.getInt());
+                block.setRoadSize(buffer.getDouble());
+                Intersection other = intersections[buffer.getInt()];
+                int numPoints = buffer.getInt();
+                for (int k = 0; k < numPoints; k++) {
+                    Coordinate coord = new Coordinate(buffer.getInt(), buffer.getInt());
+                    if (k == 0) {
+                        block.startPoint(coord);
+                    } else {
+                        block.nextPoint(coord);
+                    }
+                }
+                block.setFirstEndpoint(intersections[v]);
+                block.setLastEndpoint(other);
+                block.setLength(buffer.getDouble());
+                block.setTrafficFactor(buffer.getDouble());
+                block.setTraffic(buffer.getDouble());
+                list[i] = block;
+            }
+
+            //addEdge adds at the head, so adding back to front leaves them in the order written
+            for (int i = degree - 1; i >= 0; i--) {
+                network.addEdge(v, list[i]);
+            }
+            if (degree > 0 && (adjacencyList[v] != list[0] || list[degree - 1].getNext() != null)) {
+                throw new IllegalStateException("Network.addEdge did not add the blocks of intersection " + v + " at the head of its list");
+            }
+        }
+        return network;
+    }
+}
@@ -0,0 +1,117 @@
+package rumaps;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Random;
+
+import static rumaps.RoutingChecks.check;
+
+/**
+ * Behaviour tests for NetworkSnapshot:
+ * - a map saved with saveSnapshot, after some traffic updates, and loaded with loadSnapshot has
+ *   the same intersections at the same indexes, and the same blocks in the same adjacency list
+ *   order, with the same points, lengths, traffic factors and traffic;
+ * - the loaded map answers fastestPath with the same paths as the saved one;
+ * - a snapshot with a flipped byte or cut short is refused with an IOException.
+ *
+ * Usage: java rumaps.NetworkSnapshotTest
+ */
+public class NetworkSnapshotTest {
+
+    private static final long SEED = 7;
+    private static final int INTERSECTIONS = 1500;
+    private static final int QUERIES = 100;
+    private static final int UPDATES = 100;
+
+    private NetworkSnapshotTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (String layout : new String[] {"grid", "geometric"}) {
+            RUMaps map = RoutingChecks.generate(layout, INTERSECTIONS, SEED);
+            Random random = new Random(SEED);
+            for (int u = 0; u < UPDATES; u++) {
+                RoutingChecks.updateRandomBlock(map, random);
+            }
+            File file = File.createTempFile("rumaps-test-" + layout + "-", ".snapshot");
+            file.deleteOnExit();
+            map.saveSnapshot(file.getPath());
+            RUMaps loaded = RUMaps.loadSnapshot(null, file.getPath());
+            sameNetwork(layout, map.getRutgers(), loaded.getRutgers());
+            samePaths(layout, map, loaded, random);
+            damagedSnapshotsRefused(layout, file);
+        }
+        RoutingChecks.finish();
+    }
+
+    private static void sameNetwork(String name, Network saved, Network loaded) {
+        Intersection[] savedIntersections = saved.getIntersections();
+        Intersection[] loadedIntersections = loaded.getIntersections();
+        Block[] savedList = saved.getAdjacencyList();
+        Block[] loadedList = loaded.getAdjacencyList();
+        for (int v = 0; v < savedIntersections.length && savedIntersections[v] != null; v++) {
+            if (!check(savedIntersections[v].equals(loadedIntersections[v]),
+                    name + " snapshot has " + loadedIntersections[v] + " at " + v + ", not " + savedIntersections[v])) {
+                continue;
+            }
+            Block a = savedList[v];
+            Block b = loadedList[v];
+            int i = 0;
+            for (; a != null && b != null; a = a.getNext(), b = b.getNext(), i++) {
+                check(sameBlock(a, b), name + " snapshot block " + i + " of " + v + " differs");
+            }
+            check(a == null && b == null, name + " snapshot has a different number of blocks at " + v);
+        }
+    }
+
+    private static boolean sameBlock(Block a, Block b) {
+        return a.getStreetName().equals(b.getStreetName())
+                && a.getBlockNumber() == b.getBlockNumber()
+                && a.getRoadSize() == b.getRoadSize()
+                && a.getFirstEndpoint().equals(b.getFirstEndpoint())
+                && a.getLastEndpoint().equals(b.getLastEndpoint())
+                && a.getCoordinatePoints().equals(b.getCoordinatePoints())
+                && a.getLength() == b.getLength()
+                && a.getTrafficFactor() == b.getTrafficFactor()
+                && a.getTraffic() == b.getTraffic();
+    }
+
+    private static void samePaths(String name, RUMaps saved, RUMaps loaded, Random random) {
+        RouteGraph graph = saved.getRouteGraph();
+        int[] vertices = RoutingChecks.occupied(graph);
+        for (int q = 0; q < QUERIES; q++) {
+            Intersection start = graph.intersection(RoutingChecks.randomVertex(vertices, random));
+            Intersection end = graph.intersection(RoutingChecks.randomVertex(vertices, random));
+            ArrayList<Intersection> expected = saved.fastestPath(start, end);
+            ArrayList<Intersection> actual = loaded.fastestPath(start, end);
+            check(actual.equals(expected), name + " loaded snapshot finds a different path from " + start + " to " + end);
+        }
+    }
+
+    private static void damagedSnapshotsRefused(String name, File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long middle = raf.length() / 2;
+            raf.seek(middle);
+            int b = raf.read();
+            raf.seek(middle);
+            raf.write(b ^ 1);
+            check(refused(file), name + " snapshot with a flipped byte was loaded");
+
+            raf.seek(middle);
+            raf.write(b);
+            raf.setLength(raf.length() - 8);
+            check(refused(file), name + " truncated snapshot was loaded");
+        }
+    }
+
+    private static boolean refused(File file) {
+        try {
+            RUMaps.loadSnapshot(null, file.getPath());
+            return false;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package dictionary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A compressed trie (radix tree) over the words of a dictionary, for exact lookups, prefix
+ * queries and autocomplete.
+ *
+ * Each edge is labelled with a run of characters, and a node with one child and no word of its
+ * own is merged into its child, so the tree has at most two nodes per word. Words that share a
+ * prefix share the edges that spell it, so the prefix is stored once rather than once per word.
+ *
+ * A lookup compares each character of the query once, walking down the edges, where a
+ * BSTDictionary lookup compares the query against a whole word at every level and goes over the
+ * shared prefix again each time.
+ *
+ * Every word has a weight, and every node records the highest weight of any word below it, so
+ * complete() can search best first and skip subtrees that cannot beat the k words already found.
+ * By default shorter words weigh more, so complete() suggests the shortest completions first.
+ *
+ * The tree is built once from a dictionary and does not change afterward.
+ */
+public class RadixTree {
+
+    private static final char[] NO_CHARS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private static final class Node {
+        String label;                       // characters on the edge from the parent
+        char[] firstChars = NO_CHARS;       // first character of each child's label, sorted
+        Node[] children = NO_CHILDREN;
+        int childCount;
+        boolean terminal;                   // a word ends here
+        String definition;
+        double weight;                      // of the word ending here
+        double best = Double.NEGATIVE_INFINITY; // highest weight of any word in this subtree
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(firstChars, 0, childCount, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        void addChild(Node child) {
+            char c = child.label.charAt(0);
+            int i = Arrays.binarySearch(firstChars, 0, childCount, c);
+            if (i >= 0) {
+                children[i] = child; //replaces the child it was split from
+                return;
+            }
+            i = -i - 1;
+            if (childCount == children.length) {
+                int capacity = Math.max(2, childCount * 2);
+                firstChars = Arrays.copyOf(firstChars, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            System.arraycopy(firstChars, i, firstChars, i + 1, childCount - i);
+            System.arraycopy(children, i, children, i + 1, childCount - i);
+            firstChars[i] = c;
+            children[i] = child;
+            childCount++;
+        }
+    }
+
+    /**
+     * A word found by complete(), or a subtree still to be searched.
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+        final Node node;    // null for a found word
+        final String text;  // the word, or the prefix that leads to node
+        final double score;
+
+        Candidate(Node node, String text, double score) {
+            this.node = node;
+            this.text = text;
+            this.score = score;
+        }
+
+        //highest score first, then alphabetical, so a subtree is opened before any later word
+        public int compareTo(Candidate other) {
+            int byScore = Double.compare(other.score, score);
+            return byScore != 0 ? byScore : text.compareTo(other.text);
+        }
+    }
+
+    private final Node root = new Node("");
+    private int size;
+    private int nodeCount = 1;
+
+    /**
+     * Builds the tree from every word in dictionary, weighting shorter words higher.
+     *
+     * @param dictionary the words and definitions to index
+     */
+    public RadixTree(BSTDictionary dictionary) {
+        this(dictionary, word -> -word.length());
+    }
+
+    /**
+     * Builds the tree from every word in dictionary.
+     *
+     * @param dictionary the words and definitions to index
+     * @param weight     gives each word's weight; complete() suggests heavier words first
+     */
+    public RadixTree(BSTDictionary dictionary, ToDoubleFunction<String> weight) {
+        for (WordNode node : dictionary) {
+            insert(node.getWord(), node.getDefinition(), weight.applyAsDouble(node.getWord()));
+        }
+        computeBest(root);
+    }
+
+    private void insert(String word, String definition, double weight) {
+        Node node = root;
+        int i = 0;
+        while (i < word.length()) {
+            Node child = node.child(word.charAt(i));
+            if (child == null) {
+                Node leaf = new Node(word.substring(i));
+                setWord(leaf, definition, weight);
+                node.addChild(leaf);
+                nodeCount++;
+                return;
+            }
+            String label = child.label;
+            int common = 1;
+            int limit = Math.min(label.length(), word.length() - i);
+            while (common < limit && label.charAt(common) == word.charAt(i + common)) {
+                common++;
+            }
+            if (common < label.length()) {
+                //the word leaves the edge partway, so split the edge there
+                Node middle = new Node(label.substring(0, common));
+                child.label = label.substring(common);
+                middle.addChild(child);
+                node.addChild(middle);
+                nodeCount++;
+                child = middle;
+            }
+            node = child;
+            i += common;
+        }
+        if (!node.terminal) {
+            setWord(node, definition, weight);
+        }
+    }
+
+    private void setWord(Node node, String definition, double weight) {
+        node.terminal = true;
+        node.definition = definition;
+        node.weight = weight;
+        size++;
+    }
+
+    private static double computeBest(Node node) {
+        double best = node.terminal ? node.weight : Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < node.childCount; i++) {
+            best = Math.max(best, computeBest(node.children[i]));
+        }
+        node.best = best;
+        return best;
+    }
+
+    /**
+     * @return the number of words in the tree
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of nodes, the root included; at most twice the number of words
+     */
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @param word the word to look up
+     * @return the definition of word, or null if it is not in the tree
+     */
+    public String getDefinition(String word) {
+        Node node = find(word);
+        return node != null && node.terminal ? node.definition : null;
+    }
+
+    /**
+     * @param word the word to look up
+     * @return true if word is in the tree
+     */
+    public boolean contains(String word) {
+        Node node = find(word);
+        return node != null && node.terminal;
+    }
+
+    //the node that word ends at exactly, or null if it ends partway along an edge or leaves the tree
+    private Node find(String word) {
+        Node node = root;
+        int i = 0;
+        while (i < word.length()) {
+            node = node.child(word.charAt(i));
+            if (node == null || !word.startsWith(node.label, i)) {
+                return null;
+            }
+            i += node.label.length();
+        }
+        return node;
+    }
+
+    /**
+     * Finds the node whose subtree holds exactly the words starting with prefix.
+     *
+     * @param path set to the characters from the root to the node returned, which begin with prefix
+     * @return the node, or null if no word starts with prefix
+     */
+    private Node locate(String prefix, StringBuilder path) {
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            node = node.child(prefix.charAt(i));
+            if (node == null) {
+                return null;
+            }
+            //prefix may end partway along the edge
+            int length = Math.min(node.label.length(), prefix.length() - i);
+            if (!prefix.regionMatches(i, node.label, 0, length)) {
+                return null;
+            }
+            path.append(node.label);
+            i += node.label.length();
+        }
+        return node;
+    }
+
+    /**
+     * @param prefix the start of the words to find
+     * @return the words starting with prefix and their definitions, in alphabetical order, the
+     *         same order as BSTDictionary.prefix(), as new WordNodes without children
+     */
+    public ArrayList<WordNode> prefix(String prefix) {
+        ArrayList<WordNode> found = new ArrayList<>();
+        StringBuilder path = new StringBuilder();
+        Node node = locate(prefix, path);
+        if (node != null) {
+            collect(node, path, found);
+        }
+        return found;
+    }
+
+    //adds the words under node in alphabetical order: node's own word, then each child's in order
+    private static void collect(Node node, StringBuilder path, ArrayList<WordNode> found) {
+        if (node.terminal) {
+            found.add(new WordNode(path.toString(), node.definition));
+        }
+        for (int i = 0; i < node.childCount; i++) {
+            Node child = node.children[i];
+            int length = path.length();
+            path.append(child.label);
+            collect(child, path, found);
+            path.setLength(length);
+        }
+    }
+
+    /**
+     * Finds the k heaviest words starting with prefix. Subtrees are searched best first by the
+     * heaviest word in them, so the search stops as soon as k words are found, without visiting
+     * the rest of the words that start with prefix.
+     *
+     * @param prefix the start of the words to suggest
+     * @param k      the most words to return
+     * @return up to k words starting with prefix, heaviest first, ties in alphabetical order
+     */
+    public ArrayList<String> complete(String prefix, int k) {
+        ArrayList<String> words = new ArrayList<>();
+        StringBuilder path = new StringBuilder();
+        Node start = locate(prefix, path);
+        if (start == null || k <= 0) {
+            return words;
+        }
+        PriorityQueue<Candidate> fringe = new PriorityQueue<>();
+        fringe.add(new Candidate(start, path.toString(), start.best));
+        while (!fringe.isEmpty() && words.size() < k) {
+            Candidate candidate = fringe.poll();
+            Node node = candidate.node;
+            if (node == null) {
+                words.add(candidate.text);
+                continue;
+            }
+            if (node.terminal) {
+                fringe.add(new Candidate(null, candidate.text, node.weight));
+            }
+            for (int i = 0; i < node.childCount; i++) {
+                Node child = node.children[i];
+                fringe.add(new Candidate(child, candidate.text + child.label, child.best));
+            }
+        }
+        return words;
+    }
+}
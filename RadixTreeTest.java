@@ -0,0 +1,82 @@
+package dictionary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.ToDoubleFunction;
+
+import static dictionary.DictionaryChecks.check;
+
+/**
+ * Behaviour tests for RadixTree, built from BSTDictionaries of random words, some with null
+ * definitions, and from an empty one:
+ * - size matches the dictionary and nodeCount is at most two nodes per word plus the root;
+ * - getDefinition, contains and prefix give the same answers as the dictionary, for words in
+ *   and out of it and for prefixes ending inside an edge, and the empty prefix gives every word;
+ * - complete returns the k heaviest words with the prefix, ties in alphabetical order, the same
+ *   as sorting all of them, with the default weights (shorter first) and with other weights.
+ *
+ * Usage: java dictionary.RadixTreeTest
+ */
+public class RadixTreeTest {
+
+    private static final long SEED = 11;
+    private static final int[] SIZES = {0, 1, 50, 5000};
+    private static final int QUERIES = 2000;
+    private static final int[] KS = {0, 1, 5, 40};
+
+    private RadixTreeTest() {
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(SEED);
+        for (int size : SIZES) {
+            BSTDictionary dictionary = new BSTDictionary(true);
+            while (dictionary.size() < size) {
+                String word = DictionaryChecks.randomWord(random);
+                dictionary.addWord(word, random.nextInt(10) == 0 ? null : "definition of " + word);
+            }
+            String name = "radix tree of " + size + " words";
+            ToDoubleFunction<String> shorter = word -> -word.length();
+            compare(name, new RadixTree(dictionary), shorter, dictionary, random);
+            //few distinct weights, so many ties
+            ToDoubleFunction<String> hashed = word -> Math.floorMod(word.hashCode(), 7);
+            compare(name + " with hashed weights", new RadixTree(dictionary, hashed), hashed, dictionary, random);
+        }
+        DictionaryChecks.finish();
+    }
+
+    private static void compare(String name, RadixTree tree, ToDoubleFunction<String> weight, BSTDictionary dictionary,
+            Random random) {
+        check(tree.size() == dictionary.size(), name + " has size " + tree.size() + ", not " + dictionary.size());
+        check(tree.nodeCount() <= 2 * dictionary.size() + 1, name + " has " + tree.nodeCount() + " nodes");
+        DictionaryChecks.checkSameWords(name + " prefix()", tree.prefix(""), dictionary.inOrder());
+
+        List<WordNode> words = dictionary.inOrder();
+        for (int q = 0; q < QUERIES; q++) {
+            String word = !words.isEmpty() && random.nextBoolean() ? words.get(random.nextInt(words.size())).getWord()
+                    : DictionaryChecks.randomWord(random);
+            WordNode ceiling = dictionary.ceiling(word);
+            boolean present = ceiling != null && ceiling.getWord().equals(word);
+            check(tree.contains(word) == present, name + " contains(" + word + ")");
+            check(DictionaryChecks.equal(tree.getDefinition(word), dictionary.getDefinition(word)),
+                    name + " getDefinition(" + word + ") returned " + tree.getDefinition(word));
+
+            String prefix = word.substring(0, random.nextInt(word.length() + 1));
+            ArrayList<WordNode> starting = dictionary.prefix(prefix);
+            DictionaryChecks.checkSameWords(name + " prefix(" + prefix + ")", tree.prefix(prefix), starting);
+
+            int k = KS[random.nextInt(KS.length)];
+            List<String> expected = new ArrayList<>();
+            for (WordNode node : starting) {
+                expected.add(node.getWord());
+            }
+            //stable, so equal weights stay in alphabetical order
+            expected.sort((a, b) -> Double.compare(weight.applyAsDouble(b), weight.applyAsDouble(a)));
+            expected = expected.subList(0, Math.min(k, expected.size()));
+            List<String> completions = tree.complete(prefix, k);
+            check(completions.equals(expected),
+                    name + " complete(" + prefix + ", " + k + ") returned " + completions + ", not " + expected);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package rumaps;
+
+/**
+ * The result of a shortest-path query: the vertex ids along the route, from source to target,
+ * the ids of the edges taken between them, the total traffic cost of the route, and how many
+ * vertices the search expanded to find it. edges[i] leads from vertices[i] to vertices[i + 1].
+ * 
+ * An unreachable target is reported as a route with no vertices and an infinite cost.
+ */
+public class Route {
+
+    private final int[] vertices;
+    private final int[] edges;
+    private final double cost;
+    private final int expanded;
+
+    public Route(int[] vertices, int[] edges, double cost, int expanded) {
+        this.vertices = vertices;
+        this.edges = edges;
+        this.cost = cost;
+        this.expanded = expanded;
+    }
+
+    /**
+     * @param expanded the number of vertices expanded before the search gave up
+     * @return a route for a target that cannot be reached from the source
+     */
+    public static Route unreachable(int expanded) {
+        return new Route(new int[0], new int[0], Double.POSITIVE_INFINITY, expanded);
+    }
+
+    public int[] getVertices() {
+        return vertices;
+    }
+
+    public int[] getEdges() {
+        return edges;
+    }
+
+    public double getCost() {
+        return cost;
+    }
+
+    /**
+     * @return the number of vertices removed from the fringe during the search
+     */
+    public int getExpandedCount() {
+        return expanded;
+    }
+
+    public boolean isReachable() {
+        return vertices.length > 0;
+    }
+}
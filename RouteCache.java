@@ -0,0 +1,238 @@
+package rumaps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of search results keyed by (start, end, mode), evicting the least recently
+ * used entry when full. Entries hold intersection ids, so one cache serves any list type the
+ * caller builds from them.
+ *
+ * Fewest-intersection paths do not depend on traffic, so only a new graph invalidates them.
+ * Least-traffic paths are invalidated by traffic changes:
+ * - when an edge gets more expensive, only cached paths that use it can stop being optimal,
+ *   so those are dropped (an index from edge to entries finds them without a scan);
+ * - when an edge gets cheaper, any least-traffic path may now have a better alternative
+ *   through it, so all least-traffic entries are dropped.
+ *
+ * All methods are synchronized, so the cache can be shared by concurrent searches.
+ */
+public class RouteCache {
+
+    /**
+     * What a cached path minimizes.
+     */
+    public enum Mode {
+        FEWEST_INTERSECTIONS,
+        LEAST_TRAFFIC
+    }
+
+    private static final class Key {
+        final int start;
+        final int end;
+        final Mode mode;
+
+        Key(int start, int end, Mode mode) {
+            this.start = start;
+            this.end = end;
+            this.mode = mode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return start == other.start && end == other.end && mode == other.mode;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * start + end) + mode.ordinal();
+        }
+    }
+
+    private static final class Entry {
+        final int[] vertices;
+        final int[] edges; // edges the path depends on, empty for fewest-intersection entries
+
+        Entry(int[] vertices, int[] edges) {
+            this.vertices = vertices;
+            this.edges = edges;
+        }
+    }
+
+    private final int capacity;
+    private final LinkedHashMap<Key, Entry> entries;
+    // byEdge[e] holds the keys of the cached least-traffic entries whose path uses edge e, or is
+    // null if there are none; it grows to the highest edge id seen
+    private ArrayList<Key>[] byEdge = newIndex(0);
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * @param capacity the most entries to keep
+     */
+    public RouteCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > RouteCache.this.capacity) {
+                    unindex(eldest.getKey(), eldest.getValue());
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Looks up a cached path and counts a hit or a miss.
+     *
+     * @return the ids of the path's intersections (empty if there is no path), or null if
+     *         the pair is not cached. The array must not be modified.
+     */
+    public synchronized int[] get(int start, int end, Mode mode) {
+        Entry entry = entries.get(new Key(start, end, mode));
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.vertices;
+    }
+
+    /**
+     * Caches a path.
+     *
+     * @param vertices the ids of the path's intersections, or an empty array if there is no path
+     * @param edges the ids of the edges whose traffic the path depends on; ignored for
+     *        fewest-intersection paths
+     */
+    public synchronized void put(int start, int end, Mode mode, int[] vertices, int[] edges) {
+        Key key = new Key(start, end, mode);
+        if (mode == Mode.FEWEST_INTERSECTIONS) {
+            edges = new int[0];
+        }
+        Entry old = entries.put(key, new Entry(vertices, edges));
+        if (old != null) {
+            unindex(key, old);
+        }
+        for (int e : edges) {
+            if (e >= byEdge.length) {
+                byEdge = Arrays.copyOf(byEdge, Math.max(e + 1, 2 * byEdge.length));
+            }
+            if (byEdge[e] == null) {
+                byEdge[e] = new ArrayList<>();
+            }
+            byEdge[e].add(key);
+        }
+    }
+
+    /**
+     * Drops the least-traffic entries that a traffic change on edge e may have made wrong.
+     *
+     * @param e the edge whose traffic changed
+     * @param oldTraffic the traffic before the change
+     * @param newTraffic the traffic after the change
+     */
+    public synchronized void trafficChanged(int e, double oldTraffic, double newTraffic) {
+        if (newTraffic < oldTraffic) {
+            Iterator<Map.Entry<Key, Entry>> all = entries.entrySet().iterator();
+            while (all.hasNext()) {
+                Map.Entry<Key, Entry> next = all.next();
+                if (next.getKey().mode == Mode.LEAST_TRAFFIC) {
+                    //every indexed key is a least-traffic one, so their lists can go whole
+                    for (int other : next.getValue().edges) {
+                        byEdge[other] = null;
+                    }
+                    all.remove();
+                    invalidations++;
+                }
+            }
+        } else if (newTraffic > oldTraffic) {
+            ArrayList<Key> keys = e < byEdge.length ? byEdge[e] : null;
+            if (keys == null) {
+                return;
+            }
+            byEdge[e] = null;
+            for (Key key : keys) {
+                Entry entry = entries.remove(key);
+                for (int other : entry.edges) {
+                    if (other != e) {
+                        unindexEdge(other, key);
+                    }
+                }
+                invalidations++;
+            }
+        }
+    }
+
+    /**
+     * Drops every entry, for when the graph is rebuilt or the engine replaced. The counters are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        Arrays.fill(byEdge, null);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of entries dropped because of traffic changes
+     */
+    public synchronized long invalidations() {
+        return invalidations;
+    }
+
+    private void unindex(Key key, Entry entry) {
+        for (int e : entry.edges) {
+            unindexEdge(e, key);
+        }
+    }
+
+    private void unindexEdge(int e, Key key) {
+        ArrayList<Key> keys = byEdge[e];
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                byEdge[e] = null;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArrayList<Key>[] newIndex(int length) {
+        return (ArrayList<Key>[]) new ArrayList[length];
+    }
+}
@@ -0,0 +1,148 @@
+package rumaps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import static rumaps.RoutingChecks.check;
+
+/**
+ * Behaviour tests for RouteCache, on its own and in front of RUMaps:
+ * - get and put count hits and misses, and the least recently used entry is evicted when full;
+ * - traffic going up on an edge drops only the least-traffic entries whose path uses it;
+ *   traffic going down drops every least-traffic entry; fewest-intersection entries stay;
+ *   clear() drops everything and keeps the counters;
+ * - through RUMaps, a repeated fastestPath is a hit, a traffic update that can change the answer
+ *   makes it a miss, and every answer, cached or not, is the path plain Dijkstra finds now.
+ *
+ * Usage: java rumaps.RouteCacheTest
+ */
+public class RouteCacheTest {
+
+    private static final long SEED = 7;
+    private static final int INTERSECTIONS = 1500;
+    private static final int QUERIES = 200;
+
+    private RouteCacheTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        countsAndEviction();
+        invalidation();
+        for (String layout : new String[] {"grid", "geometric"}) {
+            cachedPathsStayCurrent(layout, RoutingChecks.generate(layout, INTERSECTIONS, SEED));
+        }
+        RoutingChecks.finish();
+    }
+
+    private static void countsAndEviction() {
+        RouteCache cache = new RouteCache(2);
+        check(cache.get(1, 2, RouteCache.Mode.LEAST_TRAFFIC) == null, "empty cache returned a path");
+        cache.put(1, 2, RouteCache.Mode.LEAST_TRAFFIC, new int[] {1, 2}, new int[] {10});
+        cache.put(1, 2, RouteCache.Mode.FEWEST_INTERSECTIONS, new int[] {1, 5, 2}, null);
+        check(Arrays.equals(cache.get(1, 2, RouteCache.Mode.LEAST_TRAFFIC), new int[] {1, 2}),
+                "cache returned the wrong least-traffic path");
+        check(Arrays.equals(cache.get(1, 2, RouteCache.Mode.FEWEST_INTERSECTIONS), new int[] {1, 5, 2}),
+                "cache mixed up the modes");
+        //(1, 2, FEWEST_INTERSECTIONS) was used last, so the least-traffic entry goes
+        cache.get(1, 2, RouteCache.Mode.LEAST_TRAFFIC);
+        cache.get(1, 2, RouteCache.Mode.FEWEST_INTERSECTIONS);
+        cache.put(3, 4, RouteCache.Mode.LEAST_TRAFFIC, new int[0], new int[0]);
+        check(cache.get(1, 2, RouteCache.Mode.LEAST_TRAFFIC) == null, "least recently used entry was not evicted");
+        check(cache.get(1, 2, RouteCache.Mode.FEWEST_INTERSECTIONS) != null, "recently used entry was evicted");
+        check(cache.get(3, 4, RouteCache.Mode.LEAST_TRAFFIC).length == 0, "cache lost an unreachable pair");
+        check(cache.hits() == 6 && cache.misses() == 2 && cache.evictions() == 1 && cache.size() == 2,
+                "cache counted " + cache.hits() + " hits, " + cache.misses() + " misses, " + cache.evictions()
+                + " evictions and holds " + cache.size() + " entries");
+    }
+
+    private static void invalidation() {
+        RouteCache cache = new RouteCache(16);
+        cache.put(0, 3, RouteCache.Mode.LEAST_TRAFFIC, new int[] {0, 1, 3}, new int[] {5, 6});
+        cache.put(0, 4, RouteCache.Mode.LEAST_TRAFFIC, new int[] {0, 2, 4}, new int[] {7, 8});
+        cache.put(0, 5, RouteCache.Mode.LEAST_TRAFFIC, new int[] {0, 1, 5}, new int[] {5, 9});
+        cache.put(0, 3, RouteCache.Mode.FEWEST_INTERSECTIONS, new int[] {0, 3}, null);
+
+        cache.trafficChanged(5, 1.0, 1.0);
+        check(cache.size() == 4, "unchanged traffic dropped entries");
+        cache.trafficChanged(100, 1.0, 2.0);
+        check(cache.size() == 4, "traffic going up on an unused edge dropped entries");
+        cache.trafficChanged(5, 1.0, 2.0);
+        check(cache.get(0, 3, RouteCache.Mode.LEAST_TRAFFIC) == null && cache.get(0, 5, RouteCache.Mode.LEAST_TRAFFIC) == null,
+                "traffic going up kept a path through the edge");
+        check(cache.get(0, 4, RouteCache.Mode.LEAST_TRAFFIC) != null, "traffic going up dropped a path avoiding the edge");
+        check(cache.invalidations() == 2, "cache counted " + cache.invalidations() + " invalidations, not 2");
+        //the dropped entries must be gone from the index of their other edges too
+        cache.trafficChanged(9, 1.0, 2.0);
+        check(cache.invalidations() == 2, "an invalidated entry was invalidated again");
+
+        cache.put(0, 5, RouteCache.Mode.LEAST_TRAFFIC, new int[] {0, 1, 5}, new int[] {5, 9});
+        cache.trafficChanged(3, 2.0, 1.0);
+        check(cache.get(0, 4, RouteCache.Mode.LEAST_TRAFFIC) == null && cache.get(0, 5, RouteCache.Mode.LEAST_TRAFFIC) == null,
+                "traffic going down kept a least-traffic path");
+        check(cache.get(0, 3, RouteCache.Mode.FEWEST_INTERSECTIONS) != null, "traffic going down dropped a fewest-intersection path");
+        cache.trafficChanged(9, 1.0, 2.0);
+        check(cache.invalidations() == 4, "cache counted " + cache.invalidations() + " invalidations, not 4");
+
+        long hits = cache.hits();
+        cache.clear();
+        check(cache.size() == 0 && cache.hits() == hits, "clear() left entries or reset the counters");
+    }
+
+    private static void cachedPathsStayCurrent(String name, RUMaps map) {
+        RouteGraph graph = map.getRouteGraph();
+        int[] vertices = RoutingChecks.occupied(graph);
+        RouteCache cache = map.getRouteCache();
+        DijkstraEngine dijkstra = new DijkstraEngine();
+        Random random = new Random(SEED);
+        Intersection[] starts = new Intersection[20];
+        Intersection[] ends = new Intersection[starts.length];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = graph.intersection(RoutingChecks.randomVertex(vertices, random));
+            ends[i] = graph.intersection(RoutingChecks.randomVertex(vertices, random));
+        }
+
+        for (int q = 0; q < QUERIES; q++) {
+            int i = random.nextInt(starts.length);
+            long hits = cache.hits();
+            ArrayList<Intersection> path = map.fastestPath(starts[i], ends[i]);
+            boolean hit = cache.hits() > hits;
+            Route expected = dijkstra.route(graph, graph.idOf(starts[i]), graph.idOf(ends[i]));
+            check(samePath(graph, path, expected), name + " fastestPath from " + starts[i] + " to " + ends[i]
+                    + (hit ? " from the cache" : "") + " is not the path Dijkstra finds now");
+
+            check(map.fastestPath(starts[i], ends[i]).equals(path) && cache.hits() > hits + (hit ? 1 : 0),
+                    name + " repeated fastestPath was not answered from the cache");
+
+            //raise the traffic on a block of the path, or lower it anywhere, now and then
+            if (q % 3 == 0 && expected.getEdges().length > 0) {
+                int e = expected.getEdges()[random.nextInt(expected.getEdges().length)];
+                map.updateTrafficFactor(graph.intersection(graph.source(e)), graph.intersection(graph.target(e)),
+                        graph.block(e).getTrafficFactor() + 0.5);
+                long misses = cache.misses();
+                map.fastestPath(starts[i], ends[i]);
+                check(cache.misses() == misses + 1, name + " traffic going up on a cached path left it cached");
+            } else if (q % 3 == 1) {
+                int e = random.nextInt(graph.edgeCount());
+                map.updateTrafficFactor(graph.intersection(graph.source(e)), graph.intersection(graph.target(e)),
+                        AStarEngine.MIN_TRAFFIC_FACTOR);
+            }
+        }
+    }
+
+    private static boolean samePath(RouteGraph graph, ArrayList<Intersection> path, Route route) {
+        if (!route.isReachable()) {
+            return path.size() == 1;
+        }
+        int[] vertices = route.getVertices();
+        if (path.size() != vertices.length) {
+            return false;
+        }
+        for (int i = 0; i < vertices.length; i++) {
+            if (graph.idOf(path.get(i)) != vertices[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,254 @@
+package rumaps;
+
+import java.util.Arrays;
+
+/**
+ * A compiled view of a Network for the search algorithms in RUMaps. The structure is read-only;
+ * only the traffic of an edge can change, through RUMaps.updateTrafficFactor.
+ * 
+ * Every intersection gets a dense int id (its index in the network), and the linked Block lists
+ * are flattened into compressed sparse row (CSR) form: the edges leaving vertex v are the ids
+ * offsets[v] to offsets[v + 1] - 1, and for each edge id e, targets[e] is the vertex it leads to,
+ * length[e] and traffic[e] are copied from the Block, and blocks[e] is the Block itself.
+ * 
+ * Edges keep the order of the Network's adjacency lists, so searches visit neighbors in the same
+ * order as a walk over the Block chain would.
+ * 
+ * The graph also keeps the reverse adjacency in the same form: the edges entering v are
+ * inEdge(i) for i from firstInEdge(v) to endInEdge(v) - 1. The two directions of a block can
+ * carry different traffic, so backward searches need these rather than the forward lists.
+ * 
+ * edgeBetween(from, to) finds the edge joining two intersections in O(1), through a hash index
+ * on the (from, to) pair, for summarizing paths that were not produced by a search.
+ */
+public class RouteGraph {
+
+    private final int vertexCount;
+    private final Intersection[] intersections;
+    private final CoordinateIndex ids;
+    private final CoordinateIndex edgeIndex; // (from, to) id pair -> first edge from -> to
+    private final int[] x;
+    private final int[] y;
+    private final int[] offsets;
+    private final int[] sources;
+    private final int[] targets;
+    private final int[] inOffsets;
+    private final int[] inEdges;
+    private final double[] length;
+    private final double[] traffic; // the only mutable part of the graph
+    private final Block[] blocks;
+
+    private RouteGraph(Intersection[] intersections, CoordinateIndex ids, CoordinateIndex edgeIndex, int[] x, int[] y,
+            int[] offsets, int[] sources, int[] targets, int[] inOffsets, int[] inEdges,
+            double[] length, double[] traffic, Block[] blocks) {
+        this.vertexCount = intersections.length;
+        this.intersections = intersections;
+        this.ids = ids;
+        this.edgeIndex = edgeIndex;
+        this.x = x;
+        this.y = y;
+        this.offsets = offsets;
+        this.sources = sources;
+        this.targets = targets;
+        this.inOffsets = inOffsets;
+        this.inEdges = inEdges;
+        this.length = length;
+        this.traffic = traffic;
+        this.blocks = blocks;
+    }
+
+    /**
+     * Builds the view from a network whose intersections, edges, lengths and traffic are all set.
+     * 
+     * @param network the network to compile
+     * @return the compiled graph
+     */
+    public static RouteGraph compile(Network network) {
+        Intersection[] intersections = network.getIntersections();
+        Block[] adjacencyList = network.getAdjacencyList();
+        int n = intersections.length;
+
+        CoordinateIndex ids = new CoordinateIndex(n);
+        int[] x = new int[n];
+        int[] y = new int[n];
+        for (int v = 0; v < n; v++) {
+            if (intersections[v] != null) {
+                x[v] = intersections[v].getCoordinate().getX();
+                y[v] = intersections[v].getCoordinate().getY();
+                ids.put(x[v], y[v], v);
+            }
+        }
+
+        //first pass counts edges per vertex, second pass fills them in
+        int[] offsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            int degree = 0;
+            for (Block ptr = adjacencyList[v]; ptr != null; ptr = ptr.getNext()) {
+                degree++;
+            }
+            offsets[v + 1] = offsets[v] + degree;
+        }
+
+        int edgeCount = offsets[n];
+        int[] sources = new int[edgeCount];
+        int[] targets = new int[edgeCount];
+        double[] length = new double[edgeCount];
+        double[] traffic = new double[edgeCount];
+        Block[] blocks = new Block[edgeCount];
+        for (int v = 0; v < n; v++) {
+            int e = offsets[v];
+            for (Block ptr = adjacencyList[v]; ptr != null; ptr = ptr.getNext()) {
+                Intersection other = ptr.getLastEndpoint();
+                if (!ptr.getFirstEndpoint().equals(intersections[v])) {
+                    other = ptr.getFirstEndpoint();
+                }
+                sources[e] = v;
+                targets[e] = ids.get(other.getCoordinate().getX(), other.getCoordinate().getY());
+                length[e] = ptr.getLength();
+                traffic[e] = ptr.getTraffic();
+                blocks[e] = ptr;
+                e++;
+            }
+        }
+
+        //keep the first edge in list order for each pair, like a walk over the Block chain would find
+        CoordinateIndex edgeIndex = new CoordinateIndex(edgeCount);
+        for (int e = 0; e < edgeCount; e++) {
+            if (edgeIndex.get(sources[e], targets[e]) == -1) {
+                edgeIndex.put(sources[e], targets[e], e);
+            }
+        }
+
+        //counting sort of the edges by target gives the reverse adjacency
+        int[] inOffsets = new int[n + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            inOffsets[targets[e] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            inOffsets[v + 1] += inOffsets[v];
+        }
+        int[] inEdges = new int[edgeCount];
+        int[] next = Arrays.copyOf(inOffsets, n);
+        for (int e = 0; e < edgeCount; e++) {
+            inEdges[next[targets[e]]++] = e;
+        }
+
+        return new RouteGraph(intersections, ids, edgeIndex, x, y, offsets, sources, targets, inOffsets, inEdges,
+                length, traffic, blocks);
+    }
+
+    /**
+     * @return the id of the intersection, or -1 if it is not in the graph
+     */
+    public int idOf(Intersection intersection) {
+        return ids.get(intersection.getCoordinate().getX(), intersection.getCoordinate().getY());
+    }
+
+    /**
+     * @return the id of the intersection at (x, y), or -1 if there is none
+     */
+    public int idOf(int x, int y) {
+        return ids.get(x, y);
+    }
+
+    public Intersection intersection(int v) {
+        return intersections[v];
+    }
+
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * @return the id of the first edge leaving v
+     */
+    public int firstEdge(int v) {
+        return offsets[v];
+    }
+
+    /**
+     * @return one past the id of the last edge leaving v
+     */
+    public int endEdge(int v) {
+        return offsets[v + 1];
+    }
+
+    /**
+     * @return the index into the reverse adjacency of the first edge entering v
+     */
+    public int firstInEdge(int v) {
+        return inOffsets[v];
+    }
+
+    /**
+     * @return one past the index of the last edge entering v
+     */
+    public int endInEdge(int v) {
+        return inOffsets[v + 1];
+    }
+
+    /**
+     * @return the id of the edge at index i of the reverse adjacency
+     */
+    public int inEdge(int i) {
+        return inEdges[i];
+    }
+
+    public int source(int e) {
+        return sources[e];
+    }
+
+    public int target(int e) {
+        return targets[e];
+    }
+
+    /**
+     * @return the first edge (in adjacency list order) from one intersection to another, or -1 if
+     *         they are not joined by a block
+     */
+    public int edgeBetween(int from, int to) {
+        return edgeIndex.get(from, to);
+    }
+
+    public double length(int e) {
+        return length[e];
+    }
+
+    public double traffic(int e) {
+        return traffic[e];
+    }
+
+    /**
+     * Sets the traffic of edge e. Callers must keep it in sync with the edge's Block.
+     */
+    void setTraffic(int e, double value) {
+        traffic[e] = value;
+    }
+
+    /**
+     * Returns a copy of this graph that shares its structure but has its own traffic array,
+     * so long-running readers are not disturbed by later traffic updates.
+     * 
+     * @return the snapshot
+     */
+    public RouteGraph snapshot() {
+        return new RouteGraph(intersections, ids, edgeIndex, x, y, offsets, sources, targets, inOffsets, inEdges,
+                length, traffic.clone(), blocks);
+    }
+
+    public Block block(int e) {
+        return blocks[e];
+    }
+
+    public int x(int v) {
+        return x[v];
+    }
+
+    public int y(int v) {
+        return y[v];
+    }
+}
@@ -0,0 +1,102 @@
+package rumaps;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Computes traffic cost matrices between many intersections at once.
+ * 
+ * Instead of one point-to-point query per pair, each origin gets a single Dijkstra sweep that
+ * stops as soon as every requested target is settled. Origins are processed in parallel; the
+ * RouteGraph is only read, and every worker thread reuses its own distance arrays and heap
+ * across the origins it handles.
+ */
+public class RouteMatrix {
+
+    private RouteMatrix() {
+    }
+
+    /**
+     * Fills a matrix with the least traffic cost from every origin to every target.
+     * 
+     * @param graph the graph to search; it must not change while the matrix is computed
+     * @param origins the ids of the origin intersections
+     * @param targets the ids of the target intersections
+     * @return matrix[i][j] is the cost from origins[i] to targets[j], or infinity if unreachable
+     */
+    public static double[][] compute(RouteGraph graph, int[] origins, int[] targets) {
+        double[][] matrix = new double[origins.length][];
+        ThreadLocal<Sweep> sweeps = ThreadLocal.withInitial(() -> new Sweep(graph.vertexCount()));
+
+        IntStream.range(0, origins.length).parallel().forEach(i -> {
+            matrix[i] = sweeps.get().run(graph, origins[i], targets);
+        });
+        return matrix;
+    }
+
+    /**
+     * One thread's scratch state for one-to-many Dijkstra sweeps.
+     */
+    private static class Sweep {
+
+        private final double[] dist;
+        private final int[] visitedAt;
+        private final int[] targetAt; // sweep number in which each vertex is a wanted target
+        private final IndexMinPQ fringe;
+        private int sweep;
+
+        Sweep(int n) {
+            dist = new double[n];
+            visitedAt = new int[n];
+            targetAt = new int[n];
+            fringe = new IndexMinPQ(n);
+        }
+
+        double[] run(RouteGraph graph, int origin, int[] targets) {
+            sweep++;
+            int remaining = 0;
+            for (int t : targets) {
+                if (targetAt[t] != sweep) {
+                    targetAt[t] = sweep;
+                    remaining++;
+                }
+            }
+
+            touch(origin);
+            dist[origin] = 0.0;
+            fringe.insert(origin, 0.0);
+            while (!fringe.isEmpty() && remaining > 0) {
+                int current = fringe.delMin();
+                if (targetAt[current] == sweep) {
+                    remaining--;
+                }
+                for (int e = graph.firstEdge(current); e < graph.endEdge(current); e++) {
+                    int neighbor = graph.target(e);
+                    touch(neighbor);
+                    double newCost = dist[current] + graph.traffic(e);
+                    if (newCost < dist[neighbor]) {
+                        dist[neighbor] = newCost;
+                        fringe.insertOrDecrease(neighbor, newCost);
+                    }
+                }
+            }
+            fringe.clear();
+
+            double[] row = new double[targets.length];
+            Arrays.fill(row, Double.POSITIVE_INFINITY);
+            for (int j = 0; j < targets.length; j++) {
+                if (visitedAt[targets[j]] == sweep) {
+                    row[j] = dist[targets[j]];
+                }
+            }
+            return row;
+        }
+
+        private void touch(int v) {
+            if (visitedAt[v] != sweep) {
+                visitedAt[v] = sweep;
+                dist[v] = Double.POSITIVE_INFINITY;
+            }
+        }
+    }
+}
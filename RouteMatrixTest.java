@@ -0,0 +1,80 @@
+package rumaps;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static rumaps.RoutingChecks.check;
+
+/**
+ * Behaviour tests for RouteMatrix and RUMaps.routeMatrix:
+ * - every entry equals the cost of plain Dijkstra between the pair, infinity included for pairs
+ *   on different parts of a geometric map, with repeated targets and origins among the targets;
+ * - the matrix still agrees after traffic updates;
+ * - an empty list of targets gives empty rows.
+ *
+ * Usage: java rumaps.RouteMatrixTest
+ */
+public class RouteMatrixTest {
+
+    private static final long SEED = 7;
+    private static final int INTERSECTIONS = 1500;
+    private static final int ORIGINS = 40;
+    private static final int TARGETS = 60;
+    private static final int UPDATES = 200;
+
+    private RouteMatrixTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (String layout : new String[] {"grid", "geometric"}) {
+            RUMaps map = RoutingChecks.generate(layout, INTERSECTIONS, SEED);
+            Random random = new Random(SEED);
+            matrixMatchesDijkstra(layout, map, random);
+            for (int u = 0; u < UPDATES; u++) {
+                RoutingChecks.updateRandomBlock(map, random);
+            }
+            matrixMatchesDijkstra(layout + " after traffic updates", map, random);
+        }
+        RoutingChecks.finish();
+    }
+
+    private static void matrixMatchesDijkstra(String name, RUMaps map, Random random) {
+        RouteGraph graph = map.getRouteGraph();
+        int[] vertices = RoutingChecks.occupied(graph);
+        List<Intersection> origins = new ArrayList<>();
+        List<Intersection> targets = new ArrayList<>();
+        for (int i = 0; i < ORIGINS; i++) {
+            origins.add(graph.intersection(RoutingChecks.randomVertex(vertices, random)));
+        }
+        for (int j = 0; j < TARGETS; j++) {
+            //some targets repeat, and some are origins
+            if (j % 10 == 0) {
+                targets.add(origins.get(random.nextInt(ORIGINS)));
+            } else if (j % 10 == 1) {
+                targets.add(targets.get(random.nextInt(j)));
+            } else {
+                targets.add(graph.intersection(RoutingChecks.randomVertex(vertices, random)));
+            }
+        }
+
+        double[][] matrix = map.routeMatrix(origins, targets);
+        DijkstraEngine dijkstra = new DijkstraEngine();
+        check(matrix.length == ORIGINS, name + " matrix has " + matrix.length + " rows");
+        for (int i = 0; i < ORIGINS; i++) {
+            if (!check(matrix[i].length == TARGETS, name + " row " + i + " has " + matrix[i].length + " entries")) {
+                continue;
+            }
+            for (int j = 0; j < TARGETS; j++) {
+                int source = graph.idOf(origins.get(i));
+                int target = graph.idOf(targets.get(j));
+                double expected = dijkstra.route(graph, source, target).getCost();
+                check(RoutingChecks.same(matrix[i][j], expected), name + " matrix from " + source + " to " + target
+                        + " is " + matrix[i][j] + ", Dijkstra found " + expected);
+            }
+        }
+
+        double[][] empty = map.routeMatrix(origins, new ArrayList<>());
+        check(empty.length == ORIGINS && empty[0].length == 0, name + " matrix with no targets has entries");
+    }
+}
@@ -0,0 +1,188 @@
+package rumaps;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures RUMaps routing on synthetic maps from MapGenerator, so performance regressions show
+ * up as numbers instead of impressions.
+ *
+ * For every map size and layout it times map loading (StdIn, MapLoader and snapshot), then
+ * reachableIntersections, minimizeIntersections, fastestPath and pathInformation on random
+ * intersection pairs. Each operation gets a warmup phase, so the JIT has compiled it, and a
+ * measured phase that reports throughput, latency percentiles and bytes allocated per call.
+ *
+ * Queries use fresh random pairs, so on large maps nearly all of them miss the route cache;
+ * the cache hit count is printed so that small maps, where pairs repeat, can be read correctly.
+ *
+ * Usage: java rumaps.RoutingBenchmark [intersections ...]   (default 1000 10000 100000)
+ * Run with a large heap (e.g. -Xmx8g) for a million intersections.
+ */
+public class RoutingBenchmark {
+
+    private static final long SEED = 42;
+    private static final int LOAD_RUNS = 3;
+    private static final int WARMUP_MILLIS = 1000;
+    private static final int MEASURE_MILLIS = 2000;
+    private static final int MAX_SAMPLES = 100000;
+
+    /**
+     * One call of the operation being measured; i counts the calls, to pick its input.
+     */
+    private interface Operation {
+        void run(int i) throws Exception;
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    private RoutingBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {1000, 10000, 100000};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        System.out.printf("%-10s %-9s %-22s %12s %10s %10s %10s %10s %12s%n", "layout", "size", "operation",
+                "ops/s", "p50 us", "p90 us", "p99 us", "max us", "bytes/op");
+        for (int size : sizes) {
+            benchmark("grid", size);
+            benchmark("geometric", size);
+        }
+    }
+
+    private static void benchmark(String layout, int size) throws Exception {
+        File mapFile = File.createTempFile("rumaps-" + layout + "-" + size + "-", ".txt");
+        File snapshotFile = File.createTempFile("rumaps-" + layout + "-" + size + "-", ".snap");
+        mapFile.deleteOnExit();
+        snapshotFile.deleteOnExit();
+        if (layout.equals("grid")) {
+            MapGenerator.writeGrid(mapFile.getPath(), size, SEED);
+        } else {
+            MapGenerator.writeRandomGeometric(mapFile.getPath(), size, SEED);
+        }
+
+        String label = String.format("%-10s %-9d ", layout, size);
+        String path = mapFile.getPath();
+        measureRuns(label + "load StdIn", LOAD_RUNS, i -> new RUMaps(path));
+        measureRuns(label + "load MapLoader", LOAD_RUNS, i -> RUMaps.load(null, path));
+        RUMaps map = RUMaps.load(null, path);
+        map.saveSnapshot(snapshotFile.getPath());
+        measureRuns(label + "load snapshot", LOAD_RUNS, i -> RUMaps.loadSnapshot(null, snapshotFile.getPath()));
+
+        ArrayList<Intersection> intersections = new ArrayList<>();
+        for (Intersection intersection : map.getRutgers().getIntersections()) {
+            if (intersection != null) {
+                intersections.add(intersection);
+            }
+        }
+        Random random = new Random(SEED);
+        int pairs = 1 << 16;
+        Intersection[] starts = new Intersection[pairs];
+        Intersection[] ends = new Intersection[pairs];
+        for (int i = 0; i < pairs; i++) {
+            starts[i] = intersections.get(random.nextInt(intersections.size()));
+            ends[i] = intersections.get(random.nextInt(intersections.size()));
+        }
+        //paths for pathInformation, computed up front so only the summary is timed
+        ArrayList<ArrayList<Intersection>> paths = new ArrayList<>();
+        for (int i = 0; i < 256; i++) {
+            paths.add(map.minimizeIntersections(starts[i], ends[i]));
+        }
+        int mask = pairs - 1;
+
+        map.getRouteGraph(); //compile outside of the timed calls
+        measure(label + "reachableIntersections", i -> map.reachableIntersections(starts[i & mask]));
+        measure(label + "minimizeIntersections", i -> map.minimizeIntersections(starts[i & mask], ends[i & mask]));
+        measure(label + "fastestPath", i -> map.fastestPath(starts[i & mask], ends[i & mask]));
+        measure(label + "pathInformation", i -> map.pathInformation(paths.get(i & 255)));
+        System.out.printf("%sroute cache hits %d of %d%n", label, map.getRouteCache().hits(),
+                map.getRouteCache().hits() + map.getRouteCache().misses());
+    }
+
+    /**
+     * Runs an operation a fixed number of times, for slow operations like loading a map.
+     */
+    private static void measureRuns(String name, int runs, Operation operation) throws Exception {
+        operation.run(-1); //warmup
+        long[] samples = new long[runs];
+        long allocated = allocatedBytes();
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            operation.run(i);
+            samples[i] = System.nanoTime() - start;
+        }
+        report(name, samples, runs, allocatedBytes() - allocated);
+    }
+
+    /**
+     * Runs an operation for WARMUP_MILLIS without measuring, then for MEASURE_MILLIS recording
+     * the latency of every call (up to MAX_SAMPLES calls).
+     */
+    private static void measure(String name, Operation operation) throws Exception {
+        int i = 0;
+        long warmupEnd = System.nanoTime() + WARMUP_MILLIS * 1000000L;
+        while (System.nanoTime() < warmupEnd) {
+            operation.run(i++);
+        }
+
+        long[] samples = new long[MAX_SAMPLES];
+        int count = 0;
+        long allocated = allocatedBytes();
+        long measureEnd = System.nanoTime() + MEASURE_MILLIS * 1000000L;
+        while (count < MAX_SAMPLES && System.nanoTime() < measureEnd) {
+            long start = System.nanoTime();
+            operation.run(i++);
+            samples[count++] = System.nanoTime() - start;
+        }
+        report(name, samples, count, allocatedBytes() - allocated);
+    }
+
+    private static void report(String name, long[] samples, int count, long allocated) {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        long total = 0;
+        for (long sample : sorted) {
+            total += sample;
+        }
+        String bytesPerOp = THREADS == null ? "n/a" : String.valueOf(allocated / count);
+        System.out.printf("%-43s %12.1f %10.1f %10.1f %10.1f %10.1f %12s%n", name, count / (total / 1e9),
+                percentile(sorted, 0.50) / 1e3, percentile(sorted, 0.90) / 1e3, percentile(sorted, 0.99) / 1e3,
+                sorted[count - 1] / 1e3, bytesPerOp);
+    }
+
+    //nearest-rank percentile of sorted samples
+    private static long percentile(long[] sorted, double p) {
+        int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.max(rank - 1, 0)];
+    }
+
+    /**
+     * @return bytes allocated so far by this thread, or 0 if the JVM does not track it
+     */
+    private static long allocatedBytes() {
+        if (THREADS == null) {
+            return 0;
+        }
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (threads.isThreadAllocatedMemorySupported()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+                return threads;
+            }
+        }
+        return null;
+    }
+}
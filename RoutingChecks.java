@@ -0,0 +1,119 @@
+package rumaps;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Shared setup and checks for the routing tests: synthetic maps from MapGenerator, random
+ * intersections on them, route validation, and a running count of checks and failures that
+ * each test reports through finish().
+ */
+final class RoutingChecks {
+
+    static final double EPSILON = 1e-6;
+
+    private static int checks;
+    private static int failures;
+
+    private RoutingChecks() {
+    }
+
+    /**
+     * Writes a map with MapGenerator to a temporary file and loads it.
+     *
+     * @param layout "grid" or "geometric"
+     */
+    static RUMaps generate(String layout, int intersections, long seed) throws IOException {
+        File file = File.createTempFile("rumaps-test-" + layout + "-", ".txt");
+        file.deleteOnExit();
+        if (layout.equals("grid")) {
+            MapGenerator.writeGrid(file.getPath(), intersections, seed);
+        } else {
+            MapGenerator.writeRandomGeometric(file.getPath(), intersections, seed);
+        }
+        return RUMaps.load(null, file.getPath());
+    }
+
+    /**
+     * @return the ids that hold an intersection; the network's arrays can have spare slots
+     */
+    static int[] occupied(RouteGraph graph) {
+        int count = 0;
+        int[] ids = new int[graph.vertexCount()];
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            if (graph.intersection(v) != null) {
+                ids[count++] = v;
+            }
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    static int randomVertex(int[] vertices, Random random) {
+        return vertices[random.nextInt(vertices.length)];
+    }
+
+    /**
+     * Sets the traffic factor of a random block through RUMaps, as a live update would.
+     */
+    static void updateRandomBlock(RUMaps map, Random random) {
+        RouteGraph graph = map.getRouteGraph();
+        int e = random.nextInt(graph.edgeCount());
+        double factor = AStarEngine.MIN_TRAFFIC_FACTOR + 2 * random.nextDouble();
+        map.updateTrafficFactor(graph.intersection(graph.source(e)), graph.intersection(graph.target(e)), factor);
+    }
+
+    /**
+     * Checks that actual costs the same as expected, and that it is a chain of edges from source
+     * to target whose traffic adds up to its cost.
+     */
+    static void checkRoute(String name, RouteGraph graph, int source, int target, Route expected, Route actual) {
+        String query = name + " from " + source + " to " + target;
+        if (!check(same(expected.getCost(), actual.getCost()),
+                query + " costs " + actual.getCost() + ", Dijkstra found " + expected.getCost())) {
+            return;
+        }
+        if (!actual.isReachable()) {
+            return;
+        }
+        int[] vertices = actual.getVertices();
+        int[] edges = actual.getEdges();
+        if (!check(edges.length == vertices.length - 1 && vertices[0] == source
+                && vertices[vertices.length - 1] == target, query + " does not run from source to target")) {
+            return;
+        }
+        double cost = 0.0;
+        for (int i = 0; i < edges.length; i++) {
+            if (!check(graph.source(edges[i]) == vertices[i] && graph.target(edges[i]) == vertices[i + 1],
+                    query + " has edge " + edges[i] + " out of place")) {
+                return;
+            }
+            cost += graph.traffic(edges[i]);
+        }
+        check(same(cost, actual.getCost()), query + " has edges costing " + cost + ", not " + actual.getCost());
+    }
+
+    static boolean same(double a, double b) {
+        return a == b || Math.abs(a - b) < EPSILON;
+    }
+
+    static boolean check(boolean passed, String message) {
+        checks++;
+        if (!passed) {
+            failures++;
+            System.out.println("FAILED: " + message);
+        }
+        return passed;
+    }
+
+    /**
+     * Prints the number of checks and failures, and exits with status 1 if any check failed.
+     */
+    static void finish() {
+        System.out.println(checks + " checks, " + failures + " failed");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+}
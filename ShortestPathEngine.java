@@ -0,0 +1,29 @@
+package rumaps;
+
+/**
+ * A strategy for answering point-to-point shortest path queries on the traffic weights of a
+ * compiled RouteGraph.
+ * 
+ * RUMaps.fastestPath delegates to whichever engine is installed with setShortestPathEngine.
+ */
+public interface ShortestPathEngine {
+
+    /**
+     * Finds the route with the least total traffic from source to target.
+     * 
+     * @param graph the graph to search
+     * @param source the id of the starting intersection
+     * @param target the id of the destination intersection
+     * @return the route found, or an unreachable route if there is none
+     */
+    Route route(RouteGraph graph, int source, int target);
+
+    /**
+     * Tells the engine that the traffic on an edge of the graph it searches has changed, so any
+     * state it precomputed from the old value is out of date. Engines without such state ignore it.
+     * 
+     * @param edge the id of the edge whose traffic changed
+     */
+    default void trafficChanged(int edge) {
+    }
+}
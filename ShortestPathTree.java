@@ -0,0 +1,237 @@
+package rumaps;
+
+import java.util.Arrays;
+
+/**
+ * A single-source shortest path tree on block traffic that can be repaired in place when the
+ * traffic on one edge changes, instead of being recomputed from scratch.
+ *
+ * The repair follows the usual dynamic SSSP approach (Ramalingam and Reps):
+ * - when an edge gets cheaper, only intersections whose distance improves are re-settled,
+ *   starting from the head of that edge;
+ * - when a tree edge gets more expensive, only the subtree hanging below it is affected. Those
+ *   intersections are given the best distance they can get from an unaffected in-neighbor and
+ *   are re-settled among themselves. Non-tree edges getting more expensive change nothing.
+ *
+ * The children of every intersection are kept in doubly linked sibling lists, so the affected
+ * subtree is found without scanning the whole tree.
+ */
+public class ShortestPathTree {
+
+    private final RouteGraph graph;
+    private final int source;
+    private final double[] dist;
+    private final int[] parentEdge; // edge used to reach each intersection, -1 for the source or unreachable
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final int[] prevSibling;
+    private final IndexMinPQ fringe;
+
+    // repair scratch
+    private final int[] affectedAt;
+    private int repair;
+
+    /**
+     * Builds the tree with Dijkstra from the source.
+     *
+     * @param graph the graph to search
+     * @param source the id of the source intersection
+     */
+    public ShortestPathTree(RouteGraph graph, int source) {
+        int n = graph.vertexCount();
+        this.graph = graph;
+        this.source = source;
+        dist = new double[n];
+        parentEdge = new int[n];
+        firstChild = new int[n];
+        nextSibling = new int[n];
+        prevSibling = new int[n];
+        affectedAt = new int[n];
+        fringe = new IndexMinPQ(n);
+
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(parentEdge, -1);
+        Arrays.fill(firstChild, -1);
+        Arrays.fill(nextSibling, -1);
+        Arrays.fill(prevSibling, -1);
+
+        dist[source] = 0.0;
+        fringe.insert(source, 0.0);
+        settle();
+    }
+
+    /**
+     * Makes an independent copy of a tree. Later repairs of either tree do not change the other.
+     *
+     * @param other the tree to copy
+     */
+    public ShortestPathTree(ShortestPathTree other) {
+        int n = other.dist.length;
+        graph = other.graph;
+        source = other.source;
+        dist = other.dist.clone();
+        parentEdge = other.parentEdge.clone();
+        firstChild = other.firstChild.clone();
+        nextSibling = other.nextSibling.clone();
+        prevSibling = other.prevSibling.clone();
+        affectedAt = new int[n];
+        fringe = new IndexMinPQ(n);
+    }
+
+    public int getSource() {
+        return source;
+    }
+
+    /**
+     * @return the least traffic cost from the source to v, or infinity if v is unreachable
+     */
+    public double distance(int v) {
+        return dist[v];
+    }
+
+    /**
+     * @return the edge through which the tree reaches v, or -1 for the source or an unreachable v
+     */
+    public int parentEdge(int v) {
+        return parentEdge[v];
+    }
+
+    /**
+     * @return the ids of the intersections from the source to v, or an empty array if v is unreachable
+     */
+    public int[] path(int v) {
+        if (dist[v] == Double.POSITIVE_INFINITY) {
+            return new int[0];
+        }
+        int length = 1;
+        for (int w = v; parentEdge[w] != -1; w = graph.source(parentEdge[w])) {
+            length++;
+        }
+        int[] vertices = new int[length];
+        for (int w = v; ; w = graph.source(parentEdge[w])) {
+            vertices[--length] = w;
+            if (parentEdge[w] == -1) {
+                break;
+            }
+        }
+        return vertices;
+    }
+
+    /**
+     * Repairs the tree after the traffic on edge e changed from oldTraffic to its current value
+     * in the graph.
+     *
+     * @param e the id of the edge that changed
+     * @param oldTraffic the traffic the tree was built with
+     */
+    public void edgeChanged(int e, double oldTraffic) {
+        double newTraffic = graph.traffic(e);
+        int u = graph.source(e);
+        int v = graph.target(e);
+
+        if (newTraffic < oldTraffic) {
+            if (dist[u] + newTraffic < dist[v]) {
+                dist[v] = dist[u] + newTraffic;
+                setParent(v, e);
+                fringe.insert(v, dist[v]);
+                settle();
+            }
+        } else if (newTraffic > oldTraffic && parentEdge[v] == e) {
+            repairSubtree(v);
+        }
+    }
+
+    /**
+     * Recomputes the distances of v and everything below it in the tree, after the edge into v
+     * got more expensive.
+     */
+    private void repairSubtree(int root) {
+        repair++;
+
+        //collect the subtree and forget its distances
+        int[] affected = new int[16];
+        int count = 0;
+        affected[count++] = root;
+        affectedAt[root] = repair;
+        for (int i = 0; i < count; i++) {
+            for (int c = firstChild[affected[i]]; c != -1; c = nextSibling[c]) {
+                if (count == affected.length) {
+                    affected = Arrays.copyOf(affected, count * 2);
+                }
+                affected[count++] = c;
+                affectedAt[c] = repair;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            dist[affected[i]] = Double.POSITIVE_INFINITY;
+        }
+
+        //each affected intersection starts from its best unaffected in-neighbor
+        for (int i = 0; i < count; i++) {
+            int x = affected[i];
+            double best = Double.POSITIVE_INFINITY;
+            int bestEdge = -1;
+            for (int j = graph.firstInEdge(x); j < graph.endInEdge(x); j++) {
+                int e = graph.inEdge(j);
+                int y = graph.source(e);
+                if (affectedAt[y] != repair && dist[y] + graph.traffic(e) < best) {
+                    best = dist[y] + graph.traffic(e);
+                    bestEdge = e;
+                }
+            }
+            dist[x] = best;
+            setParent(x, bestEdge);
+            if (bestEdge != -1) {
+                fringe.insert(x, best);
+            }
+        }
+        settle();
+    }
+
+    /**
+     * Runs Dijkstra from whatever is on the fringe, only ever lowering distances.
+     */
+    private void settle() {
+        while (!fringe.isEmpty()) {
+            int current = fringe.delMin();
+            for (int e = graph.firstEdge(current); e < graph.endEdge(current); e++) {
+                int neighbor = graph.target(e);
+                double newCost = dist[current] + graph.traffic(e);
+                if (newCost < dist[neighbor]) {
+                    dist[neighbor] = newCost;
+                    setParent(neighbor, e);
+                    fringe.insertOrDecrease(neighbor, newCost);
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves v under the tail of edge e in the sibling lists, or detaches it if e is -1.
+     */
+    private void setParent(int v, int e) {
+        int oldParent = parentEdge[v] == -1 ? -1 : graph.source(parentEdge[v]);
+        if (oldParent != -1) {
+            if (prevSibling[v] != -1) {
+                nextSibling[prevSibling[v]] = nextSibling[v];
+            } else {
+                firstChild[oldParent] = nextSibling[v];
+            }
+            if (nextSibling[v] != -1) {
+                prevSibling[nextSibling[v]] = prevSibling[v];
+            }
+        }
+
+        parentEdge[v] = e;
+        prevSibling[v] = -1;
+        nextSibling[v] = -1;
+        if (e != -1) {
+            int parent = graph.source(e);
+            nextSibling[v] = firstChild[parent];
+            if (firstChild[parent] != -1) {
+                prevSibling[firstChild[parent]] = v;
+            }
+            firstChild[parent] = v;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package rumaps;
+
+import java.util.Random;
+
+import static rumaps.RoutingChecks.check;
+
+/**
+ * Behaviour tests for ShortestPathTree and the trees cached by RUMaps:
+ * - a tree repaired with edgeChanged after each of many traffic changes, up and down, has the
+ *   same distances as a tree built from scratch on the changed graph, and its paths are chains
+ *   of tree edges that cost those distances;
+ * - trees cached by RUMaps are repaired by updateTrafficFactor: a tree asked for after the
+ *   updates matches a fresh one, and fastestRoute answers from it agree with Dijkstra;
+ * - the tree RUMaps hands out is a copy, which the updates leave as it was.
+ *
+ * Usage: java rumaps.ShortestPathTreeTest
+ */
+public class ShortestPathTreeTest {
+
+    private static final long SEED = 7;
+    private static final int INTERSECTIONS = 1500;
+    private static final int QUERIES = 30;
+    private static final int UPDATES = 200;
+    private static final int TREES = 4;
+
+    private ShortestPathTreeTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (String layout : new String[] {"grid", "geometric"}) {
+            RUMaps map = RoutingChecks.generate(layout, INTERSECTIONS, SEED);
+            repairMatchesFreshTree(layout, map);
+            cachedTreesFollowUpdates(layout, map);
+        }
+        RoutingChecks.finish();
+    }
+
+    private static void repairMatchesFreshTrees(String name, RouteGraph graph, int[] vertices, ShortestPathTree[] trees) {
+        for (ShortestPathTree tree : trees) {
+            ShortestPathTree fresh = new ShortestPathTree(graph, tree.getSource());
+            for (int v : vertices) {
+                if (!check(RoutingChecks.same(tree.distance(v), fresh.distance(v)), name + " tree from "
+                        + tree.getSource() + " has distance " + tree.distance(v) + " to " + v
+                        + ", a fresh tree has " + fresh.distance(v))) {
+                    continue;
+                }
+                int[] path = tree.path(v);
+                double cost = 0.0;
+                for (int i = 1; i < path.length; i++) {
+                    int e = tree.parentEdge(path[i]);
+                    check(graph.source(e) == path[i - 1] && graph.target(e) == path[i],
+                            name + " tree from " + tree.getSource() + " has a broken path to " + v);
+                    cost += graph.traffic(e);
+                }
+                check(path.length == 0 || RoutingChecks.same(cost, tree.distance(v)),
+                        name + " tree from " + tree.getSource() + " has a path to " + v + " costing " + cost);
+            }
+        }
+    }
+
+    private static void repairMatchesFreshTree(String name, RUMaps map) {
+        RouteGraph graph = map.getRouteGraph();
+        int[] vertices = RoutingChecks.occupied(graph);
+        Random random = new Random(SEED);
+        ShortestPathTree[] trees = new ShortestPathTree[TREES];
+        for (int i = 0; i < TREES; i++) {
+            trees[i] = new ShortestPathTree(graph, RoutingChecks.randomVertex(vertices, random));
+        }
+        double[] original = new double[graph.edgeCount()];
+        for (int e = 0; e < original.length; e++) {
+            original[e] = graph.traffic(e);
+        }
+
+        for (int u = 0; u < UPDATES; u++) {
+            //scale one edge's traffic up or down, and put it back now and then
+            int e = random.nextInt(graph.edgeCount());
+            double oldTraffic = graph.traffic(e);
+            double newTraffic = u % 5 == 0 ? original[e] : original[e] * (0.5 + 2 * random.nextDouble());
+            graph.setTraffic(e, newTraffic);
+            for (ShortestPathTree tree : trees) {
+                tree.edgeChanged(e, oldTraffic);
+            }
+            if ((u + 1) % (UPDATES / 4) == 0) {
+                repairMatchesFreshTrees(name + " after " + (u + 1) + " changes", graph, vertices, trees);
+            }
+        }
+
+        //leave the graph matching its blocks for the tests that follow
+        for (int e = 0; e < original.length; e++) {
+            graph.setTraffic(e, original[e]);
+        }
+    }
+
+    private static void cachedTreesFollowUpdates(String name, RUMaps map) {
+        RouteGraph graph = map.getRouteGraph();
+        int[] vertices = RoutingChecks.occupied(graph);
+        Random random = new Random(SEED + 1);
+        ShortestPathTree[] before = new ShortestPathTree[TREES];
+        double[][] distances = new double[TREES][];
+        for (int i = 0; i < TREES; i++) {
+            before[i] = map.shortestPathTree(graph.intersection(RoutingChecks.randomVertex(vertices, random)));
+            distances[i] = new double[graph.vertexCount()];
+            for (int v : vertices) {
+                distances[i][v] = before[i].distance(v);
+            }
+        }
+        for (int u = 0; u < UPDATES; u++) {
+            RoutingChecks.updateRandomBlock(map, random);
+        }
+
+        ShortestPathTree[] after = new ShortestPathTree[TREES];
+        for (int i = 0; i < TREES; i++) {
+            int source = before[i].getSource();
+            after[i] = map.shortestPathTree(graph.intersection(source));
+            check(after[i] != before[i], name + " handed out the same tree twice");
+            boolean unchanged = true;
+            for (int v : vertices) {
+                unchanged &= before[i].distance(v) == distances[i][v];
+            }
+            check(unchanged, name + " tree from " + source + " handed out before the updates changed");
+        }
+        repairMatchesFreshTrees(name + " cached", graph, vertices, after);
+
+        DijkstraEngine dijkstra = new DijkstraEngine();
+        for (ShortestPathTree tree : after) {
+            for (int q = 0; q < QUERIES; q++) {
+                int target = RoutingChecks.randomVertex(vertices, random);
+                Route expected = dijkstra.route(graph, tree.getSource(), target);
+                Route actual = map.fastestRoute(graph.intersection(tree.getSource()), graph.intersection(target));
+                RoutingChecks.checkRoute(name + " route from a cached tree", graph, tree.getSource(), target, expected, actual);
+                check(actual.getExpandedCount() == 0, name + " route from " + tree.getSource() + " ran a search");
+            }
+        }
+    }
+}
@@ -0,0 +1,394 @@
+package rumaps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A uniform grid over the intersections and block segments of a RouteGraph, for snapping raw
+ * (x, y) positions to the network without scanning every intersection.
+ *
+ * The bounding box of the map is cut into square cells sized to hold about one intersection
+ * each. Intersections are stored in the cell that contains them, and each straight segment of
+ * a block's polyline is stored in every cell its bounding box overlaps. Both tables are kept in
+ * compressed form (cellStart[c] to cellStart[c + 1] - 1 index the items of cell c), like the
+ * adjacency arrays of RouteGraph.
+ *
+ * Nearest queries search rings of cells outward from the query's cell and stop once the next
+ * ring cannot hold anything closer than the best found, so on maps of roughly even density they
+ * look at a constant number of cells. Radius queries look only at the cells the circle covers.
+ *
+ * The index is read-only once built and can be queried from several threads at once.
+ */
+public class SpatialIndex {
+
+    private static final int MAX_CELL = 1 << 29; // keeps ring arithmetic on far away queries from overflowing
+
+    private final RouteGraph graph;
+    private final int minX;
+    private final int minY;
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+
+    private final int[] vertexCellStart;
+    private final int[] vertexCells; // vertex ids grouped by cell
+
+    // one entry per straight piece of a block's polyline
+    private final int[] segmentEdge;
+    private final int[] segmentAx;
+    private final int[] segmentAy;
+    private final int[] segmentBx;
+    private final int[] segmentBy;
+    private final int[] segmentCellStart;
+    private final int[] segmentCells; // segment ids grouped by cell, a segment in each cell it overlaps
+
+    /**
+     * Builds the index for a graph. Each block is indexed once, through the direction whose
+     * source id is not greater than its target id.
+     *
+     * @param graph the graph to index
+     */
+    public SpatialIndex(RouteGraph graph) {
+        this.graph = graph;
+        int n = graph.vertexCount();
+
+        int count = 0;
+        int loX = Integer.MAX_VALUE, loY = Integer.MAX_VALUE;
+        int hiX = Integer.MIN_VALUE, hiY = Integer.MIN_VALUE;
+        for (int v = 0; v < n; v++) {
+            if (graph.intersection(v) != null) {
+                loX = Math.min(loX, graph.x(v));
+                loY = Math.min(loY, graph.y(v));
+                hiX = Math.max(hiX, graph.x(v));
+                hiY = Math.max(hiY, graph.y(v));
+                count++;
+            }
+        }
+        //block points can bend outside the box of the intersections
+        List<int[]> segments = new ArrayList<>();
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            if (graph.source(e) > graph.target(e)) {
+                continue;
+            }
+            List<Coordinate> points = graph.block(e).getCoordinatePoints();
+            for (int i = 0; i + 1 < points.size(); i++) {
+                Coordinate a = points.get(i);
+                Coordinate b = points.get(i + 1);
+                segments.add(new int[] {e, a.getX(), a.getY(), b.getX(), b.getY()});
+                loX = Math.min(loX, Math.min(a.getX(), b.getX()));
+                loY = Math.min(loY, Math.min(a.getY(), b.getY()));
+                hiX = Math.max(hiX, Math.max(a.getX(), b.getX()));
+                hiY = Math.max(hiY, Math.max(a.getY(), b.getY()));
+            }
+        }
+        if (count == 0 && segments.isEmpty()) {
+            loX = loY = hiX = hiY = 0;
+        }
+
+        //about one intersection per cell
+        double width = (double) hiX - loX + 1;
+        double height = (double) hiY - loY + 1;
+        double size = Math.sqrt(width * height / Math.max(count, 1));
+        size = Math.max(size, Math.max(width, height) / 4096); //keep the grid from growing past 4096 cells a side
+        minX = loX;
+        minY = loY;
+        cellSize = Math.max(size, 1.0);
+        columns = (int) (width / cellSize) + 1;
+        rows = (int) (height / cellSize) + 1;
+
+        //counting sort of the intersections by cell
+        vertexCellStart = new int[columns * rows + 1];
+        for (int v = 0; v < n; v++) {
+            if (graph.intersection(v) != null) {
+                vertexCellStart[cellOf(graph.x(v), graph.y(v)) + 1]++;
+            }
+        }
+        for (int c = 0; c < columns * rows; c++) {
+            vertexCellStart[c + 1] += vertexCellStart[c];
+        }
+        vertexCells = new int[count];
+        int[] next = Arrays.copyOf(vertexCellStart, columns * rows);
+        for (int v = 0; v < n; v++) {
+            if (graph.intersection(v) != null) {
+                vertexCells[next[cellOf(graph.x(v), graph.y(v))]++] = v;
+            }
+        }
+
+        int segmentCount = segments.size();
+        segmentEdge = new int[segmentCount];
+        segmentAx = new int[segmentCount];
+        segmentAy = new int[segmentCount];
+        segmentBx = new int[segmentCount];
+        segmentBy = new int[segmentCount];
+        for (int s = 0; s < segmentCount; s++) {
+            int[] segment = segments.get(s);
+            segmentEdge[s] = segment[0];
+            segmentAx[s] = segment[1];
+            segmentAy[s] = segment[2];
+            segmentBx[s] = segment[3];
+            segmentBy[s] = segment[4];
+        }
+
+        //same counting sort for segments, over every cell of each segment's bounding box
+        segmentCellStart = new int[columns * rows + 1];
+        for (int s = 0; s < segmentCount; s++) {
+            for (int column = firstColumn(s); column <= lastColumn(s); column++) {
+                for (int row = firstRow(s); row <= lastRow(s); row++) {
+                    segmentCellStart[column * rows + row + 1]++;
+                }
+            }
+        }
+        for (int c = 0; c < columns * rows; c++) {
+            segmentCellStart[c + 1] += segmentCellStart[c];
+        }
+        segmentCells = new int[segmentCellStart[columns * rows]];
+        next = Arrays.copyOf(segmentCellStart, columns * rows);
+        for (int s = 0; s < segmentCount; s++) {
+            for (int column = firstColumn(s); column <= lastColumn(s); column++) {
+                for (int row = firstRow(s); row <= lastRow(s); row++) {
+                    segmentCells[next[column * rows + row]++] = s;
+                }
+            }
+        }
+    }
+
+    public RouteGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return the id of the intersection closest to (x, y), or -1 if the graph has none
+     */
+    public int nearestIntersection(int x, int y) {
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        int column = column(x);
+        int row = row(y);
+        int[] cells = new int[ringCapacity()];
+        for (int ring = firstRing(column, row); ring <= lastRing(column, row); ring++) {
+            //every cell in this ring is at least (ring - 1) cells away from (x, y)
+            double reach = (ring - 1) * cellSize;
+            if (ring > 0 && reach * reach > bestDistance) {
+                break;
+            }
+            int count = ringCells(column, row, ring, cells);
+            for (int k = 0; k < count; k++) {
+                int c = cells[k];
+                for (int i = vertexCellStart[c]; i < vertexCellStart[c + 1]; i++) {
+                    int v = vertexCells[i];
+                    double distance = squared(graph.x(v) - (double) x, graph.y(v) - (double) y);
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = v;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the id of an edge of the block passing closest to (x, y), measured along its
+     *         polyline, or -1 if the graph has no blocks
+     */
+    public int nearestEdge(int x, int y) {
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        int column = column(x);
+        int row = row(y);
+        int[] cells = new int[ringCapacity()];
+        for (int ring = firstRing(column, row); ring <= lastRing(column, row); ring++) {
+            double reach = (ring - 1) * cellSize;
+            if (ring > 0 && reach * reach > bestDistance) {
+                break;
+            }
+            int count = ringCells(column, row, ring, cells);
+            for (int k = 0; k < count; k++) {
+                int c = cells[k];
+                for (int i = segmentCellStart[c]; i < segmentCellStart[c + 1]; i++) {
+                    int s = segmentCells[i];
+                    double distance = segmentDistance(s, x, y);
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = segmentEdge[s];
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the ids of the intersections within radius of (x, y), closest first, and equally
+     *         close ones by id
+     */
+    public int[] intersectionsWithin(int x, int y, double radius) {
+        int firstColumn = Math.max(column(x - radius), 0);
+        int lastColumn = Math.min(column(x + radius), columns - 1);
+        int firstRow = Math.max(row(y - radius), 0);
+        int lastRow = Math.min(row(y + radius), rows - 1);
+
+        int count = 0;
+        int[] found = new int[16];
+        double[] distances = new double[16];
+        for (int column = firstColumn; column <= lastColumn; column++) {
+            for (int row = firstRow; row <= lastRow; row++) {
+                int c = column * rows + row;
+                for (int i = vertexCellStart[c]; i < vertexCellStart[c + 1]; i++) {
+                    int v = vertexCells[i];
+                    double distance = squared(graph.x(v) - (double) x, graph.y(v) - (double) y);
+                    if (distance <= radius * radius) {
+                        if (count == found.length) {
+                            found = Arrays.copyOf(found, count * 2);
+                            distances = Arrays.copyOf(distances, count * 2);
+                        }
+                        found[count] = v;
+                        distances[count++] = distance;
+                    }
+                }
+            }
+        }
+
+        sortByDistance(found, distances, count);
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Heap sorts the first count ids by their distances, moving the two arrays together, so
+     * sorting needs no boxed indexes and no comparator. Equal distances go by id.
+     */
+    private static void sortByDistance(int[] ids, double[] distances, int count) {
+        for (int k = count / 2 - 1; k >= 0; k--) {
+            sink(ids, distances, k, count);
+        }
+        for (int end = count - 1; end > 0; end--) {
+            swap(ids, distances, 0, end);
+            sink(ids, distances, 0, end);
+        }
+    }
+
+    //restores the max-heap below k in the first n entries
+    private static void sink(int[] ids, double[] distances, int k, int n) {
+        while (2 * k + 1 < n) {
+            int j = 2 * k + 1;
+            if (j + 1 < n && after(ids, distances, j + 1, j)) {
+                j++;
+            }
+            if (!after(ids, distances, j, k)) {
+                break;
+            }
+            swap(ids, distances, k, j);
+            k = j;
+        }
+    }
+
+    private static boolean after(int[] ids, double[] distances, int i, int j) {
+        return distances[i] > distances[j] || (distances[i] == distances[j] && ids[i] > ids[j]);
+    }
+
+    private static void swap(int[] ids, double[] distances, int i, int j) {
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        double distance = distances[i];
+        distances[i] = distances[j];
+        distances[j] = distance;
+    }
+
+    //squared distance from (x, y) to segment s
+    private double segmentDistance(int s, int x, int y) {
+        double ax = segmentAx[s], ay = segmentAy[s];
+        double dx = segmentBx[s] - ax, dy = segmentBy[s] - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = 0.0;
+        if (lengthSquared > 0) {
+            t = ((x - ax) * dx + (y - ay) * dy) / lengthSquared;
+            t = Math.max(0.0, Math.min(1.0, t));
+        }
+        return squared(ax + t * dx - x, ay + t * dy - y);
+    }
+
+    private static double squared(double dx, double dy) {
+        return dx * dx + dy * dy;
+    }
+
+    //the most cells a ring can have inside the grid
+    private int ringCapacity() {
+        return 2 * (columns + rows);
+    }
+
+    /**
+     * Puts the cells at Chebyshev distance ring from (column, row) that lie in the grid at the
+     * start of cells, which has room for ringCapacity() cells and is reused from ring to ring.
+     *
+     * @return the number of cells
+     */
+    private int ringCells(int column, int row, int ring, int[] cells) {
+        int top = row - ring;
+        int bottom = row + ring;
+        int left = column - ring;
+        int right = column + ring;
+        int count = 0;
+        //top and bottom rows of the ring, then the left and right sides without their corners
+        for (int c = Math.max(left, 0); c <= Math.min(right, columns - 1); c++) {
+            if (top >= 0 && top < rows) {
+                cells[count++] = c * rows + top;
+            }
+            if (ring > 0 && bottom >= 0 && bottom < rows) {
+                cells[count++] = c * rows + bottom;
+            }
+        }
+        for (int r = Math.max(top + 1, 0); r <= Math.min(bottom - 1, rows - 1); r++) {
+            if (left >= 0 && left < columns) {
+                cells[count++] = left * rows + r;
+            }
+            if (right >= 0 && right < columns) {
+                cells[count++] = right * rows + r;
+            }
+        }
+        return count;
+    }
+
+    //rings closer than this hold no grid cells, for queries outside the map
+    private int firstRing(int column, int row) {
+        int dx = Math.max(Math.max(-column, column - (columns - 1)), 0);
+        int dy = Math.max(Math.max(-row, row - (rows - 1)), 0);
+        return Math.max(dx, dy);
+    }
+
+    //the ring that reaches the farthest corner of the grid
+    private int lastRing(int column, int row) {
+        return Math.max(Math.max(Math.abs(column), Math.abs(column - (columns - 1))),
+                Math.max(Math.abs(row), Math.abs(row - (rows - 1))));
+    }
+
+    //cell positions of far away points are capped, which only moves them toward the grid
+    private int column(double x) {
+        return (int) Math.max(Math.min(Math.floor((x - minX) / cellSize), MAX_CELL), -MAX_CELL);
+    }
+
+    private int row(double y) {
+        return (int) Math.max(Math.min(Math.floor((y - minY) / cellSize), MAX_CELL), -MAX_CELL);
+    }
+
+    private int cellOf(int x, int y) {
+        return column(x) * rows + row(y);
+    }
+
+    private int firstColumn(int s) {
+        return column(Math.min(segmentAx[s], segmentBx[s]));
+    }
+
+    private int lastColumn(int s) {
+        return column(Math.max(segmentAx[s], segmentBx[s]));
+    }
+
+    private int firstRow(int s) {
+        return row(Math.min(segmentAy[s], segmentBy[s]));
+    }
+
+    private int lastRow(int s) {
+        return row(Math.max(segmentAy[s], segmentBy[s]));
+    }
+}
@@ -0,0 +1,129 @@
+package rumaps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static rumaps.RoutingChecks.check;
+
+/**
+ * Behaviour tests for SpatialIndex, against brute-force scans of every intersection and every
+ * block, for random positions inside the map, just outside it and far away:
+ * - nearestIntersection and nearestEdge find something as close as the closest there is;
+ * - intersectionsWithin finds exactly the intersections within the radius, closest first and
+ *   equally close ones by id, including radius 0 on an intersection and radii that cover
+ *   nothing or the whole map;
+ * - the RUMaps wrappers return the same intersections and blocks.
+ *
+ * Usage: java rumaps.SpatialIndexTest
+ */
+public class SpatialIndexTest {
+
+    private static final long SEED = 7;
+    private static final int INTERSECTIONS = 1500;
+    private static final int QUERIES = 500;
+
+    private SpatialIndexTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (String layout : new String[] {"grid", "geometric"}) {
+            checkMap(layout, RoutingChecks.generate(layout, INTERSECTIONS, SEED));
+        }
+        RoutingChecks.finish();
+    }
+
+    private static void checkMap(String name, RUMaps map) {
+        RouteGraph graph = map.getRouteGraph();
+        int[] vertices = RoutingChecks.occupied(graph);
+        SpatialIndex index = map.getSpatialIndex();
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (int v : vertices) {
+            minX = Math.min(minX, graph.x(v));
+            minY = Math.min(minY, graph.y(v));
+            maxX = Math.max(maxX, graph.x(v));
+            maxY = Math.max(maxY, graph.y(v));
+        }
+        int width = maxX - minX;
+        int height = maxY - minY;
+
+        Random random = new Random(SEED);
+        for (int q = 0; q < QUERIES; q++) {
+            //mostly inside the map, some just outside, a few far away
+            int spread = q % 10 == 0 ? 100 : q % 3 == 0 ? 2 : 1;
+            int x = minX - (spread - 1) * width / 2 + random.nextInt(spread * width + 1);
+            int y = minY - (spread - 1) * height / 2 + random.nextInt(spread * height + 1);
+            String query = name + " at (" + x + ", " + y + ")";
+
+            int nearest = index.nearestIntersection(x, y);
+            double closest = Double.POSITIVE_INFINITY;
+            for (int v : vertices) {
+                closest = Math.min(closest, distance(graph, v, x, y));
+            }
+            check(nearest != -1 && distance(graph, nearest, x, y) == closest,
+                    query + " nearestIntersection found " + nearest + ", not one " + Math.sqrt(closest) + " away");
+            check(nearest == -1 || graph.intersection(nearest).equals(map.nearestIntersection(x, y)),
+                    query + " RUMaps.nearestIntersection differs from the index");
+
+            int edge = index.nearestEdge(x, y);
+            double closestBlock = Double.POSITIVE_INFINITY;
+            for (int e = 0; e < graph.edgeCount(); e++) {
+                closestBlock = Math.min(closestBlock, blockDistance(graph, e, x, y));
+            }
+            check(edge != -1 && RoutingChecks.same(blockDistance(graph, edge, x, y), closestBlock),
+                    query + " nearestEdge found " + edge + ", not a block " + Math.sqrt(closestBlock) + " away");
+            check(edge == -1 || graph.block(edge) == map.nearestBlock(x, y), query + " RUMaps.nearestBlock differs from the index");
+
+            double radius = q % 50 == 0 ? 0 : q % 50 == 1 ? 2.0 * (width + height) : random.nextDouble() * width / 8;
+            checkWithin(query, map, index, vertices, x, y, radius);
+        }
+        int v = vertices[0];
+        checkWithin(name + " on intersection " + v, map, index, vertices, graph.x(v), graph.y(v), 0);
+    }
+
+    private static void checkWithin(String query, RUMaps map, SpatialIndex index, int[] vertices, int x, int y, double radius) {
+        RouteGraph graph = map.getRouteGraph();
+        List<Integer> expected = new ArrayList<>();
+        for (int v : vertices) {
+            if (distance(graph, v, x, y) <= radius * radius) {
+                expected.add(v);
+            }
+        }
+        expected.sort(Comparator.<Integer>comparingDouble(v -> distance(graph, v, x, y)).thenComparingInt(v -> v));
+        int[] actual = index.intersectionsWithin(x, y, radius);
+        check(Arrays.equals(actual, expected.stream().mapToInt(Integer::intValue).toArray()),
+                query + " intersectionsWithin " + radius + " returned " + actual.length + " intersections, expected "
+                + expected.size() + " in order");
+        ArrayList<Intersection> wrapped = map.intersectionsWithin(x, y, radius);
+        boolean same = wrapped.size() == actual.length;
+        for (int i = 0; same && i < actual.length; i++) {
+            same = wrapped.get(i).equals(graph.intersection(actual[i]));
+        }
+        check(same, query + " RUMaps.intersectionsWithin differs from the index");
+    }
+
+    //squared distance from (x, y) to intersection v
+    private static double distance(RouteGraph graph, int v, int x, int y) {
+        double dx = graph.x(v) - (double) x;
+        double dy = graph.y(v) - (double) y;
+        return dx * dx + dy * dy;
+    }
+
+    //squared distance from (x, y) to the polyline of the block of edge e
+    private static double blockDistance(RouteGraph graph, int e, int x, int y) {
+        List<Coordinate> points = graph.block(e).getCoordinatePoints();
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = 0; i + 1 < points.size(); i++) {
+            double ax = points.get(i).getX(), ay = points.get(i).getY();
+            double dx = points.get(i + 1).getX() - ax, dy = points.get(i + 1).getY() - ay;
+            double lengthSquared = dx * dx + dy * dy;
+            double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, ((x - ax) * dx + (y - ay) * dy) / lengthSquared));
+            double px = ax + t * dx - x, py = ay + t * dy - y;
+            best = Math.min(best, px * px + py * py);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,284 @@
+package dictionary;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazy iterators over the nodes of a WordNode tree in pre-order, in-order, post-order or
+ * level-order, for callers that want to stop early or stream the nodes instead of building
+ * a list of the whole tree.
+ *
+ * The depth-first orders keep an explicit stack of at most one node per level, so they use
+ * O(height) memory and never recurse. Level-order keeps a queue of the next level, which
+ * holds at most the width of the tree.
+ *
+ * The in-order spliterator splits at subtree boundaries and knows the exact size of every part
+ * from the subtree sizes in the DictionaryNodes, so parallel streams over a dictionary divide
+ * the work evenly.
+ *
+ * The iterators read the tree as they go, so it must not be changed while one is in use.
+ */
+public final class TreeTraversal {
+
+    /**
+     * The order in which to visit the nodes.
+     */
+    public enum Order {
+        PRE_ORDER,
+        IN_ORDER,
+        POST_ORDER,
+        LEVEL_ORDER
+    }
+
+    private TreeTraversal() {
+    }
+
+    /**
+     * @param root the root of the tree, or null for an empty tree
+     * @param order the order to visit the nodes in
+     * @return an iterator over the nodes of the tree
+     */
+    public static Iterator<WordNode> iterator(WordNode root, Order order) {
+        switch (order) {
+            case PRE_ORDER:
+                return new PreOrderIterator(root);
+            case IN_ORDER:
+                return new InOrderIterator(root);
+            case POST_ORDER:
+                return new PostOrderIterator(root);
+            default:
+                return new LevelOrderIterator(root);
+        }
+    }
+
+    /**
+     * @return a spliterator over the nodes of the tree. In-order, it is SIZED and SUBSIZED and
+     *         splits the tree in two at a subtree boundary; the other orders split off batches
+     *         of nodes of unknown size
+     */
+    public static Spliterator<WordNode> spliterator(WordNode root, Order order) {
+        if (order == Order.IN_ORDER) {
+            return new InOrderSpliterator(root);
+        }
+        return Spliterators.spliteratorUnknownSize(iterator(root, order),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    /**
+     * @return a sequential stream of the nodes of the tree
+     */
+    public static Stream<WordNode> stream(WordNode root, Order order) {
+        return StreamSupport.stream(spliterator(root, order), false);
+    }
+
+    private static final class PreOrderIterator implements Iterator<WordNode> {
+        private final ArrayDeque<WordNode> stack = new ArrayDeque<>();
+
+        PreOrderIterator(WordNode root) {
+            if (root != null) {
+                stack.push(root);
+            }
+        }
+
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        public WordNode next() {
+            if (stack.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            WordNode node = stack.pop();
+            //right goes under left, so the left subtree comes out first
+            if (node.getRight() != null) {
+                stack.push(node.getRight());
+            }
+            if (node.getLeft() != null) {
+                stack.push(node.getLeft());
+            }
+            return node;
+        }
+    }
+
+    private static final class InOrderIterator implements Iterator<WordNode> {
+        private final ArrayDeque<WordNode> stack = new ArrayDeque<>();
+
+        InOrderIterator(WordNode root) {
+            pushLeftSpine(root);
+        }
+
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        public WordNode next() {
+            if (stack.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            WordNode node = stack.pop();
+            pushLeftSpine(node.getRight());
+            return node;
+        }
+
+        private void pushLeftSpine(WordNode node) {
+            for (; node != null; node = node.getLeft()) {
+                stack.push(node);
+            }
+        }
+    }
+
+    /**
+     * The stack of InOrderIterator, with the next node on top, where each node is still to be
+     * visited followed by its right subtree, unless it is marked to be visited alone. The
+     * sizes of the subtrees give the exact number of nodes left.
+     *
+     * trySplit hands everything above the bottom node to a new spliterator, which for a fresh
+     * spliterator is the left subtree of the root. A single node with a right subtree R is split
+     * into the node alone followed by R's left subtree, and R followed by its right subtree.
+     */
+    private static final class InOrderSpliterator implements Spliterator<WordNode> {
+        private WordNode[] nodes = new WordNode[16];
+        private boolean[] alone = new boolean[16];
+        private int depth; // nodes on the stack, nodes[depth - 1] is next
+        private long remaining;
+
+        InOrderSpliterator(WordNode root) {
+            pushLeftSpine(root);
+            remaining = BSTDictionary.size(root);
+        }
+
+        public boolean tryAdvance(Consumer<? super WordNode> action) {
+            if (depth == 0) {
+                return false;
+            }
+            depth--;
+            WordNode node = nodes[depth];
+            if (!alone[depth]) {
+                pushLeftSpine(node.getRight());
+            }
+            remaining--;
+            action.accept(node);
+            return true;
+        }
+
+        public Spliterator<WordNode> trySplit() {
+            InOrderSpliterator prefix = new InOrderSpliterator(null);
+            if (depth > 1) {
+                for (int i = 1; i < depth; i++) {
+                    prefix.push(nodes[i], alone[i]);
+                }
+                depth = 1;
+                long kept = alone[0] ? 1 : 1 + BSTDictionary.size(nodes[0].getRight());
+                prefix.remaining = remaining - kept;
+                remaining = kept;
+                return prefix;
+            }
+            if (depth == 0 || alone[0] || nodes[0].getRight() == null) {
+                return null;
+            }
+            WordNode node = nodes[0];
+            WordNode right = node.getRight();
+            prefix.pushLeftSpine(right.getLeft());
+            prefix.push(node, true);
+            prefix.remaining = 1 + BSTDictionary.size(right.getLeft());
+            nodes[0] = right;
+            remaining = 1 + BSTDictionary.size(right.getRight());
+            return prefix;
+        }
+
+        public long estimateSize() {
+            return remaining;
+        }
+
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL
+                    | Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+
+        private void pushLeftSpine(WordNode node) {
+            for (; node != null; node = node.getLeft()) {
+                push(node, false);
+            }
+        }
+
+        private void push(WordNode node, boolean visitAlone) {
+            if (depth == nodes.length) {
+                nodes = Arrays.copyOf(nodes, depth * 2);
+                alone = Arrays.copyOf(alone, depth * 2);
+            }
+            nodes[depth] = node;
+            alone[depth] = visitAlone;
+            depth++;
+        }
+    }
+
+    private static final class PostOrderIterator implements Iterator<WordNode> {
+        private final ArrayDeque<WordNode> stack = new ArrayDeque<>();
+        private WordNode lastReturned;
+
+        PostOrderIterator(WordNode root) {
+            descend(root);
+        }
+
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        public WordNode next() {
+            if (stack.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            //a node comes out once its right subtree is done, which is when it was just returned
+            WordNode node = stack.peek();
+            while (node.getRight() != null && node.getRight() != lastReturned) {
+                descend(node.getRight());
+                node = stack.peek();
+            }
+            stack.pop();
+            lastReturned = node;
+            return node;
+        }
+
+        //pushes node and its left descendants, down to the first node without a left child
+        private void descend(WordNode node) {
+            for (; node != null; node = node.getLeft()) {
+                stack.push(node);
+            }
+        }
+    }
+
+    private static final class LevelOrderIterator implements Iterator<WordNode> {
+        private final Queue<WordNode> queue = new Queue<>();
+
+        LevelOrderIterator(WordNode root) {
+            if (root != null) {
+                queue.enqueue(root);
+            }
+        }
+
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        public WordNode next() {
+            if (queue.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            WordNode node = queue.dequeue();
+            if (node.getLeft() != null) {
+                queue.enqueue(node.getLeft());
+            }
+            if (node.getRight() != null) {
+                queue.enqueue(node.getRight());
+            }
+            return node;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package dictionary;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static dictionary.DictionaryChecks.check;
+
+/**
+ * Behaviour tests for TreeTraversal, on balanced, plain and empty dictionaries:
+ * - the iterators and sequential streams visit the nodes in the same order as the list
+ *   traversal methods of BSTDictionary, and an exhausted iterator throws NoSuchElementException;
+ * - the in-order spliterator is SIZED and SUBSIZED, and splitting it at random down to single
+ *   nodes, with some nodes taken between splits, gives parts whose estimateSize is exact and
+ *   which together visit every node once, in order;
+ * - parallel streams over every order collect the nodes in the same order as the lists.
+ *
+ * Usage: java dictionary.TreeTraversalTest
+ */
+public class TreeTraversalTest {
+
+    private static final long SEED = 11;
+    private static final int WORDS = 3000;
+    private static final int SPLITS = 50;
+
+    private TreeTraversalTest() {
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(SEED);
+        BSTDictionary balanced = new BSTDictionary(true);
+        BSTDictionary plain = new BSTDictionary();
+        for (int i = 0; i < WORDS; i++) {
+            String word = DictionaryChecks.randomWord(random);
+            balanced.addWord(word, "definition " + i);
+            plain.addWord(word, "definition " + i);
+        }
+        checkOrders("balanced dictionary", balanced, random);
+        checkOrders("plain dictionary", plain, random);
+        checkOrders("empty dictionary", new BSTDictionary(true), random);
+        DictionaryChecks.finish();
+    }
+
+    private static void checkOrders(String name, BSTDictionary dictionary, Random random) {
+        for (TreeTraversal.Order order : TreeTraversal.Order.values()) {
+            List<WordNode> expected = list(dictionary, order);
+            String query = name + " " + order;
+
+            List<WordNode> iterated = new ArrayList<>();
+            Iterator<WordNode> nodes = dictionary.iterator(order);
+            while (nodes.hasNext()) {
+                iterated.add(nodes.next());
+            }
+            checkSameNodes(query + " iterator", iterated, expected);
+            try {
+                nodes.next();
+                check(false, query + " iterator went past the end");
+            } catch (NoSuchElementException e) {
+                check(true, "");
+            }
+
+            checkSameNodes(query + " stream", dictionary.stream(order).collect(Collectors.toList()), expected);
+            Spliterator<WordNode> spliterator = TreeTraversal.spliterator(dictionary.getRoot(), order);
+            checkSameNodes(query + " parallel stream",
+                    StreamSupport.stream(spliterator, true).collect(Collectors.toList()), expected);
+        }
+
+        List<WordNode> expected = dictionary.inOrder();
+        String query = name + " in-order spliterator";
+        Spliterator<WordNode> whole = dictionary.spliterator();
+        check(whole.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED),
+                query + " is not SIZED, SUBSIZED and ORDERED");
+        check(whole.estimateSize() == expected.size(), query + " estimates " + whole.estimateSize() + " nodes");
+        checkSameNodes(query + " parallel stream",
+                StreamSupport.stream(dictionary.spliterator(), true).collect(Collectors.toList()), expected);
+        for (int s = 0; s < SPLITS; s++) {
+            List<WordNode> visited = new ArrayList<>();
+            split(query, dictionary.spliterator(), visited, random);
+            checkSameNodes(query + " split at random", visited, expected);
+        }
+    }
+
+    /**
+     * Takes some nodes, splits, and visits the split off part before the rest, both split the
+     * same way, checking that every part visits exactly as many nodes as it estimated.
+     */
+    private static void split(String name, Spliterator<WordNode> spliterator, List<WordNode> visited, Random random) {
+        long estimate = spliterator.getExactSizeIfKnown();
+        int before = visited.size();
+        for (int i = random.nextInt(3); i > 0 && spliterator.tryAdvance(visited::add); i--) {
+        }
+        Spliterator<WordNode> prefix = spliterator.trySplit();
+        if (prefix != null) {
+            check(prefix.hasCharacteristics(Spliterator.SIZED), name + " split off a part that is not SIZED");
+            split(name, prefix, visited, random);
+            split(name, spliterator, visited, random);
+        } else {
+            spliterator.forEachRemaining(visited::add);
+        }
+        check(visited.size() - before == estimate,
+                name + " part estimated " + estimate + " nodes and visited " + (visited.size() - before));
+    }
+
+    private static List<WordNode> list(BSTDictionary dictionary, TreeTraversal.Order order) {
+        switch (order) {
+            case PRE_ORDER:
+                return dictionary.preOrder();
+            case IN_ORDER:
+                return dictionary.inOrder();
+            case POST_ORDER:
+                return dictionary.postOrder();
+            default:
+                return dictionary.levelOrder();
+        }
+    }
+
+    //the traversals hand out the tree's own nodes, so they are compared by identity
+    private static void checkSameNodes(String name, List<WordNode> actual, List<WordNode> expected) {
+        if (!check(actual.size() == expected.size(), name + " returned " + actual.size() + " nodes, not " + expected.size())) {
+            return;
+        }
+        for (int i = 0; i < actual.size(); i++) {
+            if (!check(actual.get(i) == expected.get(i), name + " returned " + actual.get(i).getWord() + " at " + i
+                    + " where " + expected.get(i).getWord() + " was expected")) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package dictionary;
+
+import java.util.ArrayList;
+
+/**
+ * The operations shared by the dictionaries that can change: BSTDictionary on the heap and
+ * DiskDictionary on disk, so code can be written once against either.
+ *
+ * Words are ordered by String.compareTo, so every traversal and query returns them in the same
+ * order whichever dictionary holds them. A dictionary that stores its words in files reports read
+ * and write errors as UncheckedIOException.
+ */
+public interface WordDictionary extends Iterable<WordNode> {
+
+    /**
+     * Adds a word and its definition. If the word is already in the dictionary, nothing changes.
+     *
+     * @param word       The word to add
+     * @param definition The definition of the word
+     */
+    void addWord(String word, String definition);
+
+    /**
+     * @param word the word to look up
+     * @return the definition of word, or null if it is not in the dictionary
+     */
+    String getDefinition(String word);
+
+    /**
+     * Replaces the definition of a word already in the dictionary.
+     *
+     * @param word       the word to change
+     * @param definition its new definition
+     * @return true if the word was found and changed, false if it is not in the dictionary
+     */
+    boolean updateDefinition(String word, String definition);
+
+    /**
+     * @param word the word to remove
+     * @return true if the word was removed, false if it was not in the dictionary
+     */
+    boolean removeWord(String word);
+
+    /**
+     * @return the words from lo to hi, both included, in alphabetical order
+     */
+    ArrayList<WordNode> range(String lo, String hi);
+
+    /**
+     * @return the words that start with prefix, in alphabetical order
+     */
+    ArrayList<WordNode> prefix(String prefix);
+
+    /**
+     * @return every word in alphabetical order
+     */
+    ArrayList<WordNode> inOrder();
+}